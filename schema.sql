@@ -5,7 +5,11 @@ CREATE TABLE `site` (
   `status` enum('FAILED','INDEXED','INDEXING') NOT NULL,
   `status_time` datetime(6) NOT NULL,
   `url` varchar(255) NOT NULL,
-  PRIMARY KEY (`id`)
+  `doc_count` int NOT NULL DEFAULT 0,
+  `token_count` bigint NOT NULL DEFAULT 0,
+  `active` bit(1) NOT NULL DEFAULT b'1',
+  PRIMARY KEY (`id`),
+  KEY `idx_site_url` (`url`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
 
 CREATE TABLE `page` (
@@ -14,6 +18,9 @@ CREATE TABLE `page` (
   `content` mediumtext NOT NULL,
   `path` text NOT NULL,
   `site_id` int DEFAULT NULL,
+  `title` text,
+  `text` mediumtext,
+  `token_count` int NOT NULL DEFAULT 0,
   PRIMARY KEY (`id`),
   KEY `FKj2jx0gqa4h7wg8ls0k3y221h2` (`site_id`),
   KEY `path_index` (`path`(250)),
@@ -35,9 +42,23 @@ CREATE TABLE `index` (
   `rank` float NOT NULL,
   `lemma_id` int DEFAULT NULL,
   `page_id` int DEFAULT NULL,
+  `positions` blob,
+  `offsets` blob,
   PRIMARY KEY (`id`),
   KEY `FK2c20dhbpq33mnb1awur1tpwd2` (`lemma_id`),
   KEY `FKsq3363uoow6fmurlfheackwgc` (`page_id`),
   CONSTRAINT `FK2c20dhbpq33mnb1awur1tpwd2` FOREIGN KEY (`lemma_id`) REFERENCES `lemma` (`id`) ON DELETE RESTRICT ON UPDATE RESTRICT,
   CONSTRAINT `FKsq3363uoow6fmurlfheackwgc` FOREIGN KEY (`page_id`) REFERENCES `page` (`id`) ON DELETE RESTRICT ON UPDATE RESTRICT
-) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
\ No newline at end of file
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+
+-- Диапазоны идентификаторов страниц, лемм и индексов, выделяемые приложению порциями (позволяет Hibernate
+-- объединять вставки строк в пакеты). Начальные значения больше уже существующих идентификаторов
+CREATE TABLE `id_generator` (
+  `name` varchar(64) NOT NULL,
+  `next_id` bigint NOT NULL,
+  PRIMARY KEY (`name`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+
+INSERT INTO `id_generator` (`name`, `next_id`) SELECT 'page', COALESCE(MAX(`id`), 0) + 1 FROM `page`;
+INSERT INTO `id_generator` (`name`, `next_id`) SELECT 'lemma', COALESCE(MAX(`id`), 0) + 1 FROM `lemma`;
+INSERT INTO `id_generator` (`name`, `next_id`) SELECT 'index', COALESCE(MAX(`id`), 0) + 1 FROM `index`;
@@ -14,4 +14,9 @@ public class BotSettings {
     private String referrer;
     private Integer maxPageCount;
     private Integer minDelay;
+    private Integer connectTimeout = 5000;
+    private Integer readTimeout = 10000;
+    private Integer totalTimeout = 30000;
+    private Integer maxInFlightPages = 16;
+    private Integer frontierMemoryLimit = 100000;
 }
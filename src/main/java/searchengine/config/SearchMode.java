@@ -0,0 +1,5 @@
+package searchengine.config;
+
+public enum SearchMode {
+    MEMORY, DATABASE
+}
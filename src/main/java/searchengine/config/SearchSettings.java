@@ -0,0 +1,24 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "search-settings")
+public class SearchSettings {
+    private Integer resultCacheSize = 1000;
+    private Boolean positionalIndex = false;
+    private Integer lemmaCacheSize = 100000;
+    private SearchMode mode = SearchMode.MEMORY;
+    private Integer timeBudgetMs = 0;
+    private Boolean fuzzySearch = false;
+    private Integer fuzzyMaxEdits = 2;
+    private Integer fuzzyMaxCandidates = 5;
+    private Integer fuzzyMinOneEditLength = 3;
+    private Integer fuzzyMinTwoEditsLength = 6;
+    private Integer snippetOffsetCount = 3;
+}
@@ -13,4 +13,7 @@ import java.util.List;
 @ConfigurationProperties(prefix = "indexing-settings")
 public class SitesList {
     private List<Site> sites;
+    private Integer writeBatchSize = 50;
+    private Integer writeQueueCapacity = 200;
+    private Boolean bulkLoad = false;
 }
@@ -9,9 +9,11 @@ import org.springframework.web.bind.annotation.*;
 import searchengine.dto.ResultResponse;
 import searchengine.dto.search.SearchResponse;
 import searchengine.dto.statistics.StatisticsResponse;
+import searchengine.dto.suggest.SuggestResponse;
 import searchengine.services.IndexingService;
 import searchengine.services.SearchService;
 import searchengine.services.StatisticsService;
+import searchengine.services.SuggestService;
 
 @SuppressWarnings("JavadocLinkAsPlainText")
 @Log4j2
@@ -23,6 +25,7 @@ public class ApiController {
     private final StatisticsService statisticsService;
     private final IndexingService indexingService;
     private final SearchService searchService;
+    private final SuggestService suggestService;
 
     /**
      * Метод формирует ответ на запрос статистики
@@ -82,17 +85,41 @@ public class ApiController {
      *               проиндексированным сайтам); задаётся в формате http://www.site.com (без слэша в конце)
      * @param offset сдвиг от 0 для постраничного вывода результата
      * @param limit  количество результатов, которое необходимо вывести
+     * @param cursor курсор следующей страницы результата (nextCursor из предыдущего ответа)
+     * @param timeBudgetMs максимальное время выполнения запроса в миллисекундах (0 - по настройкам приложения)
      * @return Объект {@link ResponseEntity<SearchResponse>}
      */
     @GetMapping("/search")
     public ResponseEntity<SearchResponse> search(@RequestParam(name = "query", defaultValue = "") String query,
                                                  @RequestParam(name = "site", defaultValue = "") String site,
                                                  @RequestParam(name = "offset", defaultValue = "0") Integer offset,
-                                                 @RequestParam(name = "limit", defaultValue = "20") Integer limit) {
+                                                 @RequestParam(name = "limit", defaultValue = "20") Integer limit,
+                                                 @RequestParam(name = "cursor", defaultValue = "") String cursor,
+                                                 @RequestParam(name = "timeBudgetMs", defaultValue = "0")
+                                                 Integer timeBudgetMs) {
         log.info("Обработка запроса search");
-        SearchResponse searchResponse = searchService.search(query, site, offset, limit);
+        SearchResponse searchResponse = searchService.search(query, site, offset, limit, cursor,
+                timeBudgetMs);
         return ResponseEntity.status(searchResponse.isResult() ? HttpStatus.OK : HttpStatus.BAD_REQUEST)
                 .body(searchResponse);
     }
 
+    /**
+     * Метод формирует ответ на запрос подсказок (автодополнения) по началу слова
+     *
+     * @param prefix префикс (начало вводимого пользователем слова)
+     * @param site   сайт, по леммам которого формируются подсказки (если не задан, то по всем сайтам);
+     *               задаётся в формате http://www.site.com (без слэша в конце)
+     * @param limit  максимальное количество подсказок
+     * @return Объект {@link ResponseEntity<SuggestResponse>}
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<SuggestResponse> suggest(@RequestParam(name = "prefix", defaultValue = "") String prefix,
+                                                   @RequestParam(name = "site", defaultValue = "") String site,
+                                                   @RequestParam(name = "limit", defaultValue = "10") Integer limit) {
+        SuggestResponse suggestResponse = suggestService.suggest(prefix, site, limit);
+        return ResponseEntity.status(suggestResponse.isResult() ? HttpStatus.OK : HttpStatus.BAD_REQUEST)
+                .body(suggestResponse);
+    }
+
 }
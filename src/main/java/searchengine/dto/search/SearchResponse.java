@@ -19,4 +19,10 @@ public class SearchResponse {
 
     @JsonInclude(JsonInclude.Include.NON_NULL)
     private String error;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String nextCursor;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean incomplete;
 }
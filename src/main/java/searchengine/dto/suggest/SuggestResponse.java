@@ -0,0 +1,19 @@
+package searchengine.dto.suggest;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class SuggestResponse {
+    private boolean result;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<SuggestItem> data;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String error;
+}
@@ -14,7 +14,9 @@ import java.io.Serializable;
 @Table(name = "`index`")
 public class IndexEntity implements Serializable {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "index_id_generator")
+    @TableGenerator(name = "index_id_generator", table = "id_generator", pkColumnName = "name",
+            valueColumnName = "next_id", pkColumnValue = "index", allocationSize = 1000)
     private Integer id;
 
     @ManyToOne(cascade = CascadeType.MERGE, fetch = FetchType.LAZY)
@@ -27,4 +29,10 @@ public class IndexEntity implements Serializable {
 
     @Column(name = "`rank`", nullable = false)
     private Float rank;
+
+    @Column(columnDefinition = "BLOB")
+    private byte[] positions;
+
+    @Column(columnDefinition = "BLOB")
+    private byte[] offsets;
 }
@@ -14,7 +14,9 @@ import java.io.Serializable;
 @Table(name = "lemma", indexes = @Index(name = "lemma_index", columnList = "lemma"))
 public class LemmaEntity implements Serializable {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "lemma_id_generator")
+    @TableGenerator(name = "lemma_id_generator", table = "id_generator", pkColumnName = "name",
+            valueColumnName = "next_id", pkColumnValue = "lemma", allocationSize = 1000)
     private Integer id;
 
     @ManyToOne(cascade = CascadeType.MERGE, fetch = FetchType.LAZY)
@@ -14,7 +14,9 @@ import java.io.Serializable;
 @Table(name = "page")
 public class PageEntity implements Serializable {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "page_id_generator")
+    @TableGenerator(name = "page_id_generator", table = "id_generator", pkColumnName = "name",
+            valueColumnName = "next_id", pkColumnValue = "page", allocationSize = 100)
     private Integer id;
 
     @ManyToOne(cascade = CascadeType.MERGE, fetch = FetchType.LAZY)
@@ -30,4 +32,13 @@ public class PageEntity implements Serializable {
     @Column(columnDefinition = "MEDIUMTEXT", nullable = false)
     private String content;
 
+    @Column(columnDefinition = "TEXT")
+    private String title;
+
+    @Column(columnDefinition = "MEDIUMTEXT")
+    private String text;
+
+    @Column(nullable = false)
+    private Integer tokenCount;
+
 }
@@ -34,4 +34,13 @@ public class SiteEntity implements Serializable {
     @Column(columnDefinition = "VARCHAR(255)", nullable = false)
     private String name;
 
+    @Column(nullable = false)
+    private Integer docCount;
+
+    @Column(nullable = false)
+    private Long tokenCount;
+
+    @Column(nullable = false)
+    private Boolean active;
+
 }
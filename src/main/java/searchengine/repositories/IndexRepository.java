@@ -1,15 +1,19 @@
 package searchengine.repositories;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.transaction.annotation.Transactional;
 import searchengine.model.IndexEntity;
-import searchengine.model.LemmaEntity;
 import searchengine.model.PageEntity;
+import searchengine.repositories.projections.IndexOffsetsProjection;
+import searchengine.repositories.projections.IndexPositionsProjection;
+import searchengine.repositories.projections.IndexPostingProjection;
+import searchengine.repositories.projections.PageScoreProjection;
 
+import java.util.Collection;
 import java.util.List;
-import java.util.Set;
 
 public interface IndexRepository extends JpaRepository<IndexEntity, Integer> {
     @Transactional
@@ -30,7 +34,30 @@ public interface IndexRepository extends JpaRepository<IndexEntity, Integer> {
 
     List<IndexEntity> findAllByPage(PageEntity pageEntity);
 
-    List<IndexEntity> findAllByLemma(LemmaEntity lemmaEntity);
-
-    List<IndexEntity> findAllByPageInAndLemma(Set<PageEntity> pageEntities, LemmaEntity lemmaEntity);
+    @Query(value = "SELECT i.page_id AS pageId, SUM(LN(1 + (:docCount - l.frequency + 0.5) / (l.frequency + 0.5)) * " +
+            "i.`rank` * (:k1 + 1) / (i.`rank` + :k1 * (1 - :b + :b * CASE WHEN p.token_count > 0 AND " +
+            ":averageLength > 0 THEN p.token_count / :averageLength ELSE 1 END))) AS score " +
+            "FROM `index` i JOIN lemma l ON l.id = i.lemma_id JOIN page p ON p.id = i.page_id " +
+            "WHERE i.lemma_id IN (:lemmaIds) GROUP BY i.page_id HAVING COUNT(*) = :lemmaCount " +
+            "ORDER BY score DESC, i.page_id LIMIT :limit", nativeQuery = true)
+    List<PageScoreProjection> findTopPageScores(Collection<Integer> lemmaIds, int lemmaCount, int docCount,
+                                                double averageLength, double k1, double b, int limit);
+
+    @Query(value = "SELECT COUNT(*) FROM (SELECT i.page_id FROM `index` i WHERE i.lemma_id IN (:lemmaIds) " +
+            "GROUP BY i.page_id HAVING COUNT(*) = :lemmaCount) matches", nativeQuery = true)
+    int countPagesWithAllLemmas(Collection<Integer> lemmaIds, int lemmaCount);
+
+    @Query("SELECT i.id AS id, i.lemma.site.id AS siteId, i.lemma.id AS lemmaId, i.page.id AS pageId, " +
+            "i.rank AS rank FROM IndexEntity i WHERE i.id > :lastId ORDER BY i.id")
+    List<IndexPostingProjection> findPostingsAfterId(Integer lastId, Pageable pageable);
+
+    @Query("SELECT i.page.id AS pageId, i.lemma.id AS lemmaId, i.positions AS positions FROM IndexEntity i " +
+            "WHERE i.lemma.id IN (:lemmaIds) AND i.page.id IN (:pageIds)")
+    List<IndexPositionsProjection> findPositionsByLemmaIdInAndPageIdIn(Collection<Integer> lemmaIds,
+                                                                      Collection<Integer> pageIds);
+
+    @Query("SELECT i.page.id AS pageId, i.lemma.lemma AS lemma, i.offsets AS offsets FROM IndexEntity i " +
+            "WHERE i.page.id IN (:pageIds) AND i.lemma.lemma IN (:lemmas) AND i.offsets IS NOT NULL")
+    List<IndexOffsetsProjection> findOffsetsByPageIdInAndLemmaIn(Collection<Integer> pageIds,
+                                                                 Collection<String> lemmas);
 }
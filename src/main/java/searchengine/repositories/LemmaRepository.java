@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.transaction.annotation.Transactional;
 import searchengine.model.LemmaEntity;
 import searchengine.model.SiteEntity;
+import searchengine.repositories.projections.LemmaFrequencyProjection;
 
 import java.util.List;
 import java.util.Set;
@@ -13,7 +14,10 @@ import java.util.Set;
 public interface LemmaRepository extends JpaRepository<LemmaEntity, Integer> {
     long countBySite(SiteEntity site);
 
-    List<LemmaEntity> findAllByLemmaInAndFrequencyGreaterThan(Set<String> lemmas, int frequencyGreaterThan);
+    long countBySiteActiveTrue();
+
+    List<LemmaEntity> findAllBySiteIdInAndLemmaInAndFrequencyGreaterThanAndSiteActiveTrue(
+            List<Integer> siteIds, Set<String> lemmas, int frequencyGreaterThan);
 
     List<LemmaEntity> findAllBySiteAndLemmaInAndFrequencyGreaterThan(SiteEntity site, Set<String> lemmas,
                                                                      int frequencyGreaterThan);
@@ -22,14 +26,21 @@ public interface LemmaRepository extends JpaRepository<LemmaEntity, Integer> {
     @Query("DELETE FROM LemmaEntity l WHERE l.site.id = :siteId")
     void deleteAllBySiteId(Integer siteId);
 
+    @Query("SELECT l.lemma AS lemma, l.frequency AS frequency FROM LemmaEntity l " +
+            "WHERE l.site.id = :siteId AND l.frequency > 0")
+    List<LemmaFrequencyProjection> findFrequenciesBySiteId(Integer siteId);
+
+    @Query("SELECT l.lemma FROM LemmaEntity l WHERE l.site.id = :siteId AND l.frequency > 0")
+    List<String> findLemmasBySiteId(Integer siteId);
+
     @Transactional
     @Query(value = "FROM LemmaEntity l WHERE l.site.id = :siteId AND l.lemma IN (:lemmas)")
     List<LemmaEntity> findAllBySiteIdAndLemmaIn(Integer siteId, List<String> lemmas);
 
     @Transactional
     @Modifying
-    @Query(value = "UPDATE LemmaEntity l SET l.frequency = l.frequency + 1 WHERE l.id IN (:lemmaIds)")
-    void incrementFrequencyAllByLemmaIdIn(List<Integer> lemmaIds);
+    @Query(value = "UPDATE LemmaEntity l SET l.frequency = l.frequency + :increment WHERE l.id IN (:lemmaIds)")
+    void incrementFrequencyAllByLemmaIdIn(List<Integer> lemmaIds, int increment);
 
     @Transactional
     @Modifying
@@ -1,11 +1,14 @@
 package searchengine.repositories;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.transaction.annotation.Transactional;
 import searchengine.model.PageEntity;
 import searchengine.model.SiteEntity;
+import searchengine.repositories.projections.PageLengthProjection;
+import searchengine.repositories.projections.PageSnippetProjection;
 
 import java.util.List;
 import java.util.Optional;
@@ -13,6 +16,14 @@ import java.util.Optional;
 public interface PageRepository extends JpaRepository<PageEntity, Integer> {
     Optional<PageEntity> findBySiteAndPath(SiteEntity siteEntity, String path);
     List<PageEntity> findAllByIdIn(List<Integer> pageIds);
+
+    @Query("SELECT p.id AS id, p.site.id AS siteId, p.path AS path, p.title AS title, p.text AS text " +
+            "FROM PageEntity p WHERE p.id IN (:pageIds)")
+    List<PageSnippetProjection> findSnippetsByIdIn(List<Integer> pageIds);
+
+    @Query("SELECT p.id AS id, p.site.id AS siteId, p.tokenCount AS tokenCount FROM PageEntity p " +
+            "WHERE p.id > :lastId ORDER BY p.id")
+    List<PageLengthProjection> findLengthsAfterId(Integer lastId, Pageable pageable);
     @Transactional
     @Modifying
     @Query("DELETE FROM PageEntity p WHERE p.site.id = :siteId")
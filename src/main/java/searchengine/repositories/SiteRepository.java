@@ -17,14 +17,21 @@ public interface SiteRepository extends JpaRepository<SiteEntity, Integer> {
 
     List<SiteEntity> findAllByStatus(IndexStatusType status);
     long countAllByStatus(IndexStatusType status);
-    Optional<SiteEntity> findByUrl(String url);
+    Optional<SiteEntity> findByUrlAndActiveTrue(String url);
+    List<SiteEntity> findAllByActiveTrue();
+    List<SiteEntity> findAllByUrlAndActiveFalse(String url);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE site SET active = (id = :siteId) WHERE url = :url", nativeQuery = true)
+    void activateSite(String url, Integer siteId);
 
     @Transactional
     @Modifying
     @Query(value = "UPDATE SiteEntity s SET s.status = :newStatus, s.statusTime = :statusTime," +
-            " s.lastError = :lastError WHERE s.status = :oldStatus")
-    void updateAllSitesStatus(IndexStatusType oldStatus, IndexStatusType newStatus,
-                              Instant statusTime, String lastError);
+            " s.lastError = :lastError WHERE s.status = :oldStatus AND s.active = :active")
+    void updateAllSitesStatusByActive(Boolean active, IndexStatusType oldStatus, IndexStatusType newStatus,
+                                      Instant statusTime, String lastError);
 
     @Transactional
     @Modifying
@@ -37,4 +44,10 @@ public interface SiteRepository extends JpaRepository<SiteEntity, Integer> {
     @Modifying
     @Query(value = "UPDATE SiteEntity s SET s.statusTime = :statusTime WHERE s.id = :siteId")
     void updateSiteStatusTimeBySiteId(Integer siteId, Instant statusTime);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE SiteEntity s SET s.docCount = s.docCount + :docCountDelta," +
+            " s.tokenCount = s.tokenCount + :tokenCountDelta WHERE s.id = :siteId")
+    void addSiteStatisticsBySiteId(Integer siteId, Integer docCountDelta, Long tokenCountDelta);
 }
@@ -0,0 +1,9 @@
+package searchengine.repositories.projections;
+
+public interface IndexOffsetsProjection {
+    Integer getPageId();
+
+    String getLemma();
+
+    byte[] getOffsets();
+}
@@ -0,0 +1,9 @@
+package searchengine.repositories.projections;
+
+public interface IndexPositionsProjection {
+    Integer getPageId();
+
+    Integer getLemmaId();
+
+    byte[] getPositions();
+}
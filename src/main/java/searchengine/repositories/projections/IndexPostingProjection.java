@@ -0,0 +1,13 @@
+package searchengine.repositories.projections;
+
+public interface IndexPostingProjection {
+    Integer getId();
+
+    Integer getSiteId();
+
+    Integer getLemmaId();
+
+    Integer getPageId();
+
+    Float getRank();
+}
@@ -0,0 +1,7 @@
+package searchengine.repositories.projections;
+
+public interface LemmaFrequencyProjection {
+    String getLemma();
+
+    Integer getFrequency();
+}
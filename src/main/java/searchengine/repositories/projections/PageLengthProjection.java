@@ -0,0 +1,9 @@
+package searchengine.repositories.projections;
+
+public interface PageLengthProjection {
+    Integer getId();
+
+    Integer getSiteId();
+
+    Integer getTokenCount();
+}
@@ -0,0 +1,7 @@
+package searchengine.repositories.projections;
+
+public interface PageScoreProjection {
+    Integer getPageId();
+
+    Double getScore();
+}
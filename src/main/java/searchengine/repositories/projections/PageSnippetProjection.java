@@ -0,0 +1,13 @@
+package searchengine.repositories.projections;
+
+public interface PageSnippetProjection {
+    Integer getId();
+
+    Integer getSiteId();
+
+    String getPath();
+
+    String getTitle();
+
+    String getText();
+}
@@ -0,0 +1,115 @@
+package searchengine.services;
+
+import com.mysql.cj.jdbc.JdbcStatement;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import searchengine.model.IndexEntity;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Statement;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class IndexBulkLoader {
+    private static final String LOAD_INDEX_SQL = "LOAD DATA LOCAL INFILE 'index.tsv' INTO TABLE `index` " +
+            "CHARACTER SET binary FIELDS TERMINATED BY '\\t' ESCAPED BY '\\\\' LINES TERMINATED BY '\\n' " +
+            "(id, `rank`, lemma_id, page_id, positions, offsets)";
+    private static final byte[] NULL_FIELD = {'\\', 'N'};
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Метод выделяет в таблице id_generator диапазон идентификаторов индексов (так же, как это делает Hibernate
+     * для сохраняемых через JPA индексов). Выполняется в отдельной короткой транзакции, чтобы не блокировать
+     * строку генератора до конца записи порции страниц
+     *
+     * @param count количество идентификаторов
+     * @return Первый идентификатор диапазона
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public int allocateIndexIds(int count) {
+        jdbcTemplate.update("UPDATE id_generator SET next_id = LAST_INSERT_ID(next_id + ?) WHERE name = 'index'",
+                count);
+        Long nextId = jdbcTemplate.queryForObject("SELECT LAST_INSERT_ID()", Long.class);
+        return (int) (nextId == null ? 0 : nextId - count);
+    }
+
+    /**
+     * Метод записывает индексы в БД одной командой LOAD DATA LOCAL INFILE. Строки индексов передаются серверу
+     * в формате TSV из памяти (через InputStream драйвера, без временных файлов). Страницы и леммы, на которые
+     * ссылаются индексы, должны быть уже записаны в БД в текущей транзакции
+     *
+     * @param indexEntities индексы {@link IndexEntity}
+     * @param firstId       первый идентификатор диапазона, выделенного методом {@link #allocateIndexIds}
+     * @return Количество записанных строк
+     */
+    public int loadIndexes(List<IndexEntity> indexEntities, int firstId) {
+        ByteArrayOutputStream tsv = new ByteArrayOutputStream(indexEntities.size() * 32);
+        for (int i = 0; i < indexEntities.size(); i++) {
+            IndexEntity indexEntity = indexEntities.get(i);
+            indexEntity.setId(firstId + i);
+            writeText(tsv, indexEntity.getId().toString());
+            tsv.write('\t');
+            writeText(tsv, indexEntity.getRank().toString());
+            tsv.write('\t');
+            writeText(tsv, indexEntity.getLemma().getId().toString());
+            tsv.write('\t');
+            writeText(tsv, indexEntity.getPage().getId().toString());
+            tsv.write('\t');
+            writeBlob(tsv, indexEntity.getPositions());
+            tsv.write('\t');
+            writeBlob(tsv, indexEntity.getOffsets());
+            tsv.write('\n');
+        }
+        Integer loadedCount = jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.unwrap(JdbcStatement.class)
+                        .setLocalInfileInputStream(new ByteArrayInputStream(tsv.toByteArray()));
+                return statement.executeUpdate(LOAD_INDEX_SQL);
+            }
+        });
+        if (loadedCount == null || loadedCount != indexEntities.size()) {
+            throw new IllegalStateException("LOAD DATA записал " + loadedCount + " индексов из " +
+                    indexEntities.size());
+        }
+        return loadedCount;
+    }
+
+    private void writeText(ByteArrayOutputStream tsv, String value) {
+        tsv.writeBytes(value.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Метод записывает двоичное поле с экранированием символов, имеющих специальное значение в формате LOAD DATA
+     *
+     * @param tsv   буфер данных
+     * @param value значение поля (null записывается как \N)
+     */
+    private void writeBlob(ByteArrayOutputStream tsv, byte[] value) {
+        if (value == null) {
+            tsv.writeBytes(NULL_FIELD);
+            return;
+        }
+        for (byte b : value) {
+            switch (b) {
+                case 0 -> {
+                    tsv.write('\\');
+                    tsv.write('0');
+                }
+                case '\\', '\t', '\n' -> {
+                    tsv.write('\\');
+                    tsv.write(b == '\t' ? 't' : b == '\n' ? 'n' : '\\');
+                }
+                default -> tsv.write(b);
+            }
+        }
+    }
+}
@@ -4,12 +4,19 @@ import lombok.extern.log4j.Log4j2;
 import org.apache.lucene.morphology.LuceneMorphology;
 import org.apache.lucene.morphology.WrongCharaterException;
 import org.apache.lucene.morphology.russian.RussianLuceneMorphology;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import searchengine.config.SearchSettings;
+import searchengine.dto.statistics.CacheStatistics;
+import searchengine.services.helpers.LemmaOccurrences;
 import searchengine.services.helpers.LemmaSearchResult;
+import searchengine.services.helpers.WordForms;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
@@ -21,11 +28,23 @@ public class LemmaAnalyzerService {
     private final static String SEPARATORS_REGEX = "[\\p{Punct}\\n\\s—©]";
     private final static String SERVICE_WORDS_REGEX =
             "(\\sМЕЖД\\s)|(\\sСОЮЗ\\s)|(\\sПРЕДЛ\\s)|(\\sЧАСТ\\s)|(\\sМС\\s)";
+    private static final int DEFAULT_CACHE_SIZE = 100000;
     private final LuceneMorphology luceneMorph;
     private final Pattern patternServiceWords;
     private final Pattern patternSeparators;
+    private final WordFormsCache wordFormsCache;
 
     public LemmaAnalyzerService() {
+        this(DEFAULT_CACHE_SIZE);
+    }
+
+    @Autowired
+    public LemmaAnalyzerService(SearchSettings searchSettings) {
+        this(searchSettings.getLemmaCacheSize());
+    }
+
+    private LemmaAnalyzerService(int cacheSize) {
+        wordFormsCache = new WordFormsCache(cacheSize);
         try {
             luceneMorph = new RussianLuceneMorphology();
         } catch (IOException e) {
@@ -48,29 +67,151 @@ public class LemmaAnalyzerService {
             if (word.isEmpty()) {
                 continue;
             }
-            try {
-                List<String> wordInfos = luceneMorph.getMorphInfo(word);
-
-                if (wordInfos.stream()
-                        .anyMatch(str -> {
-                            // Так и не понял, почему в REGEX не хочет работать \\b
-                            Matcher matcher = patternServiceWords.matcher(str + " ");
-                            return matcher.find();
-                        })) {
-                    continue;
-                }
-                List<String> wordNormalForms = luceneMorph.getNormalForms(word);
-                wordNormalForms.forEach(normalForm -> result.put(normalForm.replace("ё", "е"),
-                        result.getOrDefault(normalForm, 0) + 1));
-            } catch (WrongCharaterException ex) {
-                if (logDebugErrors) {
-                    log.debug("Ошибка морфологического анализа: " + word);
+            getSignificantNormalForms(word, logDebugErrors)
+                    .forEach(normalForm -> result.merge(normalForm, 1, Integer::sum));
+        }
+        return result;
+    }
+
+    /**
+     * Метод разбивает исходный текст на значимые леммы и для каждой из них формирует список позиций (порядковых
+     * номеров слов в тексте, с учетом незначимых слов), на которых она встречается
+     *
+     * @param text           исходный текст
+     * @param logDebugErrors признак отладки (для вывода в лог информации об ошибках морфологического анализа)
+     * @return Словарь Лемма - Список позиций в порядке возрастания (количество позиций равно количеству вхождений)
+     */
+    public Map<String, List<Integer>> getLemmaPositions(String text, boolean logDebugErrors) {
+        HashMap<String, List<Integer>> result = new HashMap<>();
+        int position = 0;
+        for (String word : text.toLowerCase().split(SEPARATORS_REGEX)) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            int wordPosition = position++;
+            getSignificantNormalForms(word, logDebugErrors)
+                    .forEach(normalForm -> result.computeIfAbsent(normalForm, key -> new ArrayList<>())
+                            .add(wordPosition));
+        }
+        return result;
+    }
+
+    /**
+     * Метод разбивает исходный текст на значимые леммы и для каждой из них формирует список позиций (как
+     * {@link #getLemmaPositions(String, boolean)}) и смещения в тексте (в символах) первых вхождений. Смещения
+     * используются при формировании snippet/ов без повторного морфологического анализа текста страницы
+     *
+     * @param text           исходный текст
+     * @param maxOffsets     максимальное количество вхождений леммы, смещения которых сохраняются
+     * @param logDebugErrors признак отладки (для вывода в лог информации об ошибках морфологического анализа)
+     * @return Словарь Лемма - Вхождения леммы {@link LemmaOccurrences} (смещения - пары начало, конец слова)
+     */
+    public Map<String, LemmaOccurrences> getLemmaOccurrences(String text, int maxOffsets, boolean logDebugErrors) {
+        HashMap<String, LemmaOccurrences> result = new HashMap<>();
+        String lowerCaseText = text.toLowerCase() + " ";
+        // Если при смене регистра длина текста изменилась, то смещения в нем не соответствуют исходному тексту
+        int offsetCount = lowerCaseText.length() == text.length() + 1 ? 2 * maxOffsets : 0;
+        Matcher matcher = patternSeparators.matcher(lowerCaseText);
+        int startIndex = 0;
+        int position = 0;
+        while (matcher.find()) {
+            int wordStart = startIndex;
+            int wordEnd = matcher.start();
+            startIndex = matcher.end();
+            if (wordStart == wordEnd) {
+                continue;
+            }
+            int wordPosition = position++;
+            for (String normalForm : getSignificantNormalForms(lowerCaseText.substring(wordStart, wordEnd),
+                    logDebugErrors)) {
+                LemmaOccurrences occurrences = result.computeIfAbsent(normalForm,
+                        key -> new LemmaOccurrences(new ArrayList<>(), new ArrayList<>()));
+                occurrences.positions().add(wordPosition);
+                if (occurrences.offsets().size() < offsetCount) {
+                    occurrences.offsets().add(wordStart);
+                    occurrences.offsets().add(wordEnd);
                 }
             }
         }
         return result;
     }
 
+    /**
+     * Метод разбивает исходный текст на значимые слова (не являющиеся междометиями, союзами, предлогами, частицами
+     * и местоимениями) и находит нормальные формы каждого из них
+     *
+     * @param text исходный текст
+     * @return Словарь Слово - Список нормальных форм (пустой, если слово не удалось проанализировать) в порядке
+     * следования слов в тексте
+     */
+    public Map<String, List<String>> getWordNormalForms(String text) {
+        Map<String, List<String>> result = new LinkedHashMap<>();
+        for (String word : text.toLowerCase().split(SEPARATORS_REGEX)) {
+            if (word.isEmpty() || result.containsKey(word)) {
+                continue;
+            }
+            WordForms wordForms = wordFormsCache.get(word, key -> analyzeWord(key, false));
+            if (!wordForms.serviceWord()) {
+                result.put(word, wordForms.normalForms());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Метод возвращает нормальные формы слова, если оно не является междометием, союзом, предлогом, частицей или
+     * местоимением. Результат анализа берется из кэша {@link WordFormsCache}
+     *
+     * @param word           слово в нижнем регистре
+     * @param logDebugErrors признак отладки (для вывода в лог информации об ошибках морфологического анализа)
+     * @return Список нормальных форм (пустой для незначимых слов и слов, которые не удалось проанализировать)
+     */
+    private List<String> getSignificantNormalForms(String word, boolean logDebugErrors) {
+        WordForms wordForms = wordFormsCache.get(word, key -> analyzeWord(key, logDebugErrors));
+        return wordForms.serviceWord() ? Collections.emptyList() : wordForms.normalForms();
+    }
+
+    /**
+     * Метод выполняет морфологический анализ слова: определяет, является ли оно междометием, союзом, предлогом,
+     * частицей или местоимением, и находит его нормальные формы
+     *
+     * @param word           слово в нижнем регистре
+     * @param logDebugErrors признак отладки (для вывода в лог информации об ошибках морфологического анализа)
+     * @return Запись {@link WordForms} (без нормальных форм, если слово не удалось проанализировать)
+     */
+    private WordForms analyzeWord(String word, boolean logDebugErrors) {
+        try {
+            List<String> wordInfos = luceneMorph.getMorphInfo(word);
+
+            if (wordInfos.stream()
+                    .anyMatch(str -> {
+                        // Так и не понял, почему в REGEX не хочет работать \\b
+                        Matcher matcher = patternServiceWords.matcher(str + " ");
+                        return matcher.find();
+                    })) {
+                return new WordForms(true, Collections.emptyList());
+            }
+            return new WordForms(false, luceneMorph.getNormalForms(word).stream()
+                    .map(normalForm -> normalForm.replace("ё", "е"))
+                    .distinct()
+                    .toList());
+        } catch (WrongCharaterException ex) {
+            if (logDebugErrors) {
+                log.debug("Ошибка морфологического анализа: " + word);
+            }
+            return new WordForms(false, Collections.emptyList());
+        }
+    }
+
+    /**
+     * Метод формирует статистику использования кэша результатов морфологического анализа слов
+     *
+     * @return Объект {@link CacheStatistics}
+     */
+    public CacheStatistics getCacheStatistics() {
+        return wordFormsCache.getStatistics();
+    }
+
     /**
      * Метод выводит в лог подробную информацию о морфологическом анализе слов, переданных в исходном тексте
      *
@@ -113,19 +254,12 @@ public class LemmaAnalyzerService {
             if (word.isEmpty()) {
                 continue;
             }
-            try {
-                List<String> wordNormalForms = luceneMorph.getNormalForms(word);
-                for (String normalForm : wordNormalForms) {
-                    if (lemmas.contains(normalForm.replace("ё", "е"))) {
-                        if (result.isEmpty()) {
-                            depth = startIndex + maxDepth;
-                        }
-                        result.add(new LemmaSearchResult(startIndex, matcher.start(), normalForm));
+            for (String normalForm : getSignificantNormalForms(word, logDebugErrors)) {
+                if (lemmas.contains(normalForm)) {
+                    if (result.isEmpty()) {
+                        depth = startIndex + maxDepth;
                     }
-                }
-            } catch (WrongCharaterException ex) {
-                if (logDebugErrors) {
-                    log.debug("Ошибка морфологического анализа: " + word);
+                    result.add(new LemmaSearchResult(startIndex, matcher.start(), normalForm));
                 }
             }
             startIndex = matcher.end();
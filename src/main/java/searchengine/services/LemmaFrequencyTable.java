@@ -0,0 +1,85 @@
+package searchengine.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Таблица лемм сайта, накапливающая в памяти частоты лемм во время полной индексации нового поколения сайта
+ * (леммы которого не изменяются никем, кроме потока записи сайта). Идентификаторы и частоты хранятся в массивах
+ * примитивов, а в БД частоты записываются пакетно (см. {@link PageWriteService#flushLemmaFrequencies})
+ */
+public class LemmaFrequencyTable {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final Map<String, Integer> slots = new HashMap<>();
+    private int[] ids = new int[INITIAL_CAPACITY];
+    private int[] frequencies = new int[INITIAL_CAPACITY];
+    private int[] flushedFrequencies = new int[INITIAL_CAPACITY];
+    private int size = 0;
+
+    /**
+     * Метод ищет лемму в таблице
+     *
+     * @param lemma лемма
+     * @return Номер ячейки леммы, либо -1, если леммы в таблице нет
+     */
+    public int find(String lemma) {
+        return slots.getOrDefault(lemma, -1);
+    }
+
+    public int id(int slot) {
+        return ids[slot];
+    }
+
+    /**
+     * Метод добавляет в таблицу лемму, уже записанную в БД с заданной частотой
+     *
+     * @param lemma     лемма
+     * @param id        идентификатор леммы в БД
+     * @param frequency частота леммы, записанная в БД
+     */
+    public void add(String lemma, int id, int frequency) {
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+            frequencies = Arrays.copyOf(frequencies, size * 2);
+            flushedFrequencies = Arrays.copyOf(flushedFrequencies, size * 2);
+        }
+        ids[size] = id;
+        frequencies[size] = frequency;
+        flushedFrequencies[size] = frequency;
+        slots.put(lemma, size++);
+    }
+
+    public void increment(int slot, int delta) {
+        frequencies[slot] += delta;
+    }
+
+    /**
+     * Метод формирует параметры запроса обновления частот лемм, изменившихся после предыдущей записи в БД
+     *
+     * @return Список пар {частота, идентификатор леммы}
+     */
+    public List<Object[]> getChangedFrequencies() {
+        List<Object[]> changed = new ArrayList<>();
+        for (int slot = 0; slot < size; slot++) {
+            if (frequencies[slot] != flushedFrequencies[slot]) {
+                changed.add(new Object[]{frequencies[slot], ids[slot]});
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Метод отмечает текущие частоты всех лемм таблицы как записанные в БД
+     */
+    public void markFlushed() {
+        System.arraycopy(frequencies, 0, flushedFrequencies, 0, size);
+    }
+
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,288 @@
+package searchengine.services;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import searchengine.config.SearchSettings;
+import searchengine.config.SitesList;
+import searchengine.model.IndexEntity;
+import searchengine.model.LemmaEntity;
+import searchengine.model.PageEntity;
+import searchengine.model.SiteEntity;
+import searchengine.repositories.IndexRepository;
+import searchengine.repositories.LemmaRepository;
+import searchengine.repositories.PageRepository;
+import searchengine.repositories.SiteRepository;
+import searchengine.services.helpers.LemmaOccurrences;
+import searchengine.services.helpers.PageRecord;
+import searchengine.services.index.LemmaFilterIndex;
+import searchengine.services.index.PositionCodec;
+import searchengine.services.index.SearchIndex;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+@Log4j2
+@Service
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class PageWriteService {
+    private final SiteRepository siteRepository;
+    private final PageRepository pageRepository;
+    private final LemmaRepository lemmaRepository;
+    private final IndexRepository indexRepository;
+    private final SearchIndex searchIndex;
+    private final LemmaFilterIndex lemmaFilterIndex;
+    private final SearchSettings searchSettings;
+    private final SitesList sitesList;
+    private final JdbcTemplate jdbcTemplate;
+    private final IndexBulkLoader indexBulkLoader;
+
+    public int getBatchSize() {
+        return Math.max(sitesList.getWriteBatchSize(), 1);
+    }
+
+    public int getQueueCapacity() {
+        return Math.max(sitesList.getWriteQueueCapacity(), 1);
+    }
+
+    /**
+     * Метод записывает в БД одной транзакцией порцию обработанных страниц сайта: страницы, их леммы (новые леммы
+     * добавляются, частота существующих увеличивается на количество страниц порции, на которых они встречаются),
+     * индексы и статистику сайта. Страницы добавляются в поисковый индекс {@link SearchIndex} после фиксации
+     * транзакции. Все страницы сайта записываются одним потоком {@link PageWriterThread}, поэтому леммы сайта
+     * не могут одновременно добавляться разными потоками. Если передана таблица лемм сайта, то леммы ищутся в ней,
+     * а не в БД, и частоты существующих лемм накапливаются в памяти до вызова {@link #flushLemmaFrequencies}.
+     * В режиме пакетной загрузки (bulk-load) индексы такого сайта записываются командой LOAD DATA
+     * (см. {@link IndexBulkLoader}), а не через JPA
+     *
+     * @param siteEntity  индексируемый сайт
+     * @param pageRecords обработанные страницы {@link PageRecord}
+     * @param lemmaTable  таблица лемм сайта {@link LemmaFrequencyTable} (null - леммы ищутся и обновляются в БД)
+     */
+    @Transactional
+    public void writePages(SiteEntity siteEntity, List<PageRecord> pageRecords, LemmaFrequencyTable lemmaTable) {
+        List<PageEntity> pageEntities = new ArrayList<>(pageRecords.size());
+        for (PageRecord pageRecord : pageRecords) {
+            pageEntities.add(createPage(siteEntity, pageRecord));
+        }
+        pageRepository.saveAll(pageEntities);
+
+        Map<String, LemmaEntity> lemmaEntityMap = lemmaTable == null ?
+                insertOrIncrementLemmasFrequency(siteEntity, pageRecords) :
+                accumulateLemmasFrequency(siteEntity, pageRecords, lemmaTable);
+
+        List<IndexEntity> newIndexEntities = new ArrayList<>();
+        Map<PageEntity, Map<Integer, Float>> pageLemmaRanks = new LinkedHashMap<>();
+        for (int i = 0; i < pageRecords.size(); i++) {
+            Map<Integer, Float> lemmaRanks = createIndexes(pageEntities.get(i),
+                    pageRecords.get(i).lemmaOccurrences(), lemmaEntityMap, newIndexEntities);
+            if (!lemmaRanks.isEmpty()) {
+                pageLemmaRanks.put(pageEntities.get(i), lemmaRanks);
+            }
+        }
+        if (pageLemmaRanks.isEmpty()) {
+            return;
+        }
+        if (lemmaTable != null && sitesList.getBulkLoad()) {
+            pageRepository.flush();
+            indexBulkLoader.loadIndexes(newIndexEntities, indexBulkLoader.allocateIndexIds(newIndexEntities.size()));
+        } else {
+            indexRepository.saveAll(newIndexEntities);
+        }
+        siteRepository.addSiteStatisticsBySiteId(siteEntity.getId(), pageLemmaRanks.size(),
+                pageLemmaRanks.keySet().stream().mapToLong(PageEntity::getTokenCount).sum());
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                pageLemmaRanks.forEach((pageEntity, lemmaRanks) -> searchIndex.addPage(siteEntity.getId(),
+                        pageEntity.getId(), pageEntity.getTokenCount(), lemmaRanks));
+            }
+        });
+    }
+
+    /**
+     * Метод создает новую web-страницу вместе с ее заголовком и извлеченным текстом (они используются при
+     * формировании результатов поиска без повторного разбора HTML)
+     *
+     * @param siteEntity индексируемый сайт
+     * @param pageRecord обработанная страница
+     * @return Страница сайта {@link  PageEntity}
+     */
+    private PageEntity createPage(SiteEntity siteEntity, PageRecord pageRecord) {
+        PageEntity pageEntity = new PageEntity();
+        pageEntity.setSite(siteEntity);
+        pageEntity.setPath(pageRecord.path());
+        pageEntity.setCode(pageRecord.code());
+        pageEntity.setContent(pageRecord.content());
+        pageEntity.setTitle(pageRecord.title());
+        pageEntity.setText(pageRecord.text());
+        pageEntity.setTokenCount(pageRecord.tokenCount());
+        return pageEntity;
+    }
+
+    /**
+     * Метод добавляет новые леммы по индексируемому сайту, либо увеличивает количество существующих в базе лемм
+     * (на количество страниц порции, на которых встречается лемма)
+     *
+     * @param siteEntity  индексируемый сайт
+     * @param pageRecords обработанные страницы
+     * @return Словарь лемм из БД (текстовая лемма - лемма {@link LemmaEntity})
+     */
+    private Map<String, LemmaEntity> insertOrIncrementLemmasFrequency(SiteEntity siteEntity,
+                                                                      List<PageRecord> pageRecords) {
+        Map<String, Integer> lemmaPageCounts = countLemmaPages(pageRecords);
+        if (lemmaPageCounts.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        List<LemmaEntity> lemmaEntityList = lemmaRepository.findAllBySiteIdAndLemmaIn(siteEntity.getId(),
+                lemmaPageCounts.keySet().stream().toList());
+        Map<Integer, List<Integer>> lemmaIdsByIncrement = lemmaEntityList.stream()
+                .collect(Collectors.groupingBy(lemmaEntity -> lemmaPageCounts.get(lemmaEntity.getLemma()),
+                        Collectors.mapping(LemmaEntity::getId, Collectors.toList())));
+        lemmaIdsByIncrement.forEach((increment, lemmaIds) ->
+                lemmaRepository.incrementFrequencyAllByLemmaIdIn(lemmaIds, increment));
+        if (lemmaPageCounts.size() > lemmaEntityList.size()) {
+            Set<String> existedLemmas = lemmaEntityList.stream().map(LemmaEntity::getLemma)
+                    .collect(Collectors.toSet());
+            List<LemmaEntity> newLemmaEntities = new ArrayList<>();
+            lemmaPageCounts.forEach((lemma, pageCount) -> {
+                if (existedLemmas.contains(lemma)) {
+                    return;
+                }
+                LemmaEntity newLemmaEntity = new LemmaEntity();
+                newLemmaEntity.setSite(siteEntity);
+                newLemmaEntity.setLemma(lemma);
+                newLemmaEntity.setFrequency(pageCount);
+                newLemmaEntities.add(newLemmaEntity);
+            });
+            lemmaRepository.saveAll(newLemmaEntities);
+            lemmaFilterIndex.addLemmas(siteEntity.getId(),
+                    newLemmaEntities.stream().map(LemmaEntity::getLemma).toList());
+            lemmaEntityList.addAll(newLemmaEntities);
+        }
+        return lemmaEntityList.stream()
+                .collect(Collectors.toMap(LemmaEntity::getLemma, lemmaEntity -> lemmaEntity));
+    }
+
+    /**
+     * Метод добавляет новые леммы по индексируемому сайту, а частоту лемм, уже имеющихся в таблице лемм сайта,
+     * увеличивает только в памяти (без обращений к БД). Таблица изменяется после фиксации транзакции, чтобы при
+     * ее откате в таблицу не попали не записанные в БД леммы
+     *
+     * @param siteEntity  индексируемый сайт
+     * @param pageRecords обработанные страницы
+     * @param lemmaTable  таблица лемм сайта {@link LemmaFrequencyTable}
+     * @return Словарь лемм (текстовая лемма - лемма {@link LemmaEntity})
+     */
+    private Map<String, LemmaEntity> accumulateLemmasFrequency(SiteEntity siteEntity, List<PageRecord> pageRecords,
+                                                               LemmaFrequencyTable lemmaTable) {
+        Map<String, Integer> lemmaPageCounts = countLemmaPages(pageRecords);
+        Map<String, LemmaEntity> lemmaEntityMap = new HashMap<>();
+        Map<Integer, Integer> slotIncrements = new HashMap<>();
+        List<LemmaEntity> newLemmaEntities = new ArrayList<>();
+        lemmaPageCounts.forEach((lemma, pageCount) -> {
+            int slot = lemmaTable.find(lemma);
+            if (slot >= 0) {
+                slotIncrements.put(slot, pageCount);
+                lemmaEntityMap.put(lemma, lemmaRepository.getReferenceById(lemmaTable.id(slot)));
+                return;
+            }
+            LemmaEntity newLemmaEntity = new LemmaEntity();
+            newLemmaEntity.setSite(siteEntity);
+            newLemmaEntity.setLemma(lemma);
+            newLemmaEntity.setFrequency(pageCount);
+            newLemmaEntities.add(newLemmaEntity);
+            lemmaEntityMap.put(lemma, newLemmaEntity);
+        });
+        if (!newLemmaEntities.isEmpty()) {
+            lemmaRepository.saveAll(newLemmaEntities);
+            lemmaFilterIndex.addLemmas(siteEntity.getId(),
+                    newLemmaEntities.stream().map(LemmaEntity::getLemma).toList());
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                slotIncrements.forEach(lemmaTable::increment);
+                newLemmaEntities.forEach(lemmaEntity -> lemmaTable.add(lemmaEntity.getLemma(),
+                        lemmaEntity.getId(), lemmaEntity.getFrequency()));
+            }
+        });
+        return lemmaEntityMap;
+    }
+
+    /**
+     * Метод записывает в БД пакетом частоты лемм, накопленные в таблице лемм сайта после предыдущей записи.
+     * Таблица заполняется только при полной индексации нового поколения сайта, поэтому кроме потока записи
+     * частоты этих лемм никто не изменяет, и их можно записать абсолютными значениями. Вызывается тем же потоком
+     * записи, что и {@link #writePages}, поэтому таблица не изменяется во время записи частот
+     *
+     * @param lemmaTable таблица лемм сайта {@link LemmaFrequencyTable}
+     * @return Количество обновленных лемм
+     */
+    @Transactional
+    public int flushLemmaFrequencies(LemmaFrequencyTable lemmaTable) {
+        List<Object[]> changedFrequencies = lemmaTable.getChangedFrequencies();
+        if (changedFrequencies.isEmpty()) {
+            return 0;
+        }
+        jdbcTemplate.batchUpdate("UPDATE lemma SET frequency = ? WHERE id = ?", changedFrequencies);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                lemmaTable.markFlushed();
+            }
+        });
+        return changedFrequencies.size();
+    }
+
+    private Map<String, Integer> countLemmaPages(List<PageRecord> pageRecords) {
+        Map<String, Integer> lemmaPageCounts = new HashMap<>();
+        pageRecords.forEach(pageRecord -> pageRecord.lemmaOccurrences().keySet()
+                .forEach(lemma -> lemmaPageCounts.merge(lemma, 1, Integer::sum)));
+        return lemmaPageCounts;
+    }
+
+    /**
+     * Метод создает индексы по индексируемой странице. Если включен позиционный индекс, то вместе с индексом
+     * сохраняются позиции вхождений леммы на странице (в сжатом виде, см. {@link PositionCodec}). Также сохраняются
+     * смещения в тексте первых вхождений леммы, по которым формируются snippet/ы
+     *
+     * @param pageEntity       индексируемая страница
+     * @param lemmaOccurrences словарь найденных на странице лемм (лемма - вхождения {@link LemmaOccurrences})
+     * @param lemmaEntityMap   словарь лемм из БД (текстовая лемма - лемма {@link LemmaEntity})
+     * @param newIndexEntities список, в который добавляются созданные индексы
+     * @return Словарь Идентификатор леммы - Ранг леммы на странице (пустой, если индексов не создано)
+     */
+    private Map<Integer, Float> createIndexes(PageEntity pageEntity, Map<String, LemmaOccurrences> lemmaOccurrences,
+                                              Map<String, LemmaEntity> lemmaEntityMap,
+                                              List<IndexEntity> newIndexEntities) {
+        Map<Integer, Float> lemmaRanks = new HashMap<>();
+        boolean positionalIndex = searchSettings.getPositionalIndex();
+        for (Map.Entry<String, LemmaOccurrences> lemmaEntry : lemmaOccurrences.entrySet()) {
+            LemmaEntity lemmaEntity = lemmaEntityMap.get(lemmaEntry.getKey());
+            if (lemmaEntity == null) {
+                log.warn("Лемма '" + lemmaEntry.getKey() + "' не найдена среди существующих лемм для страницы: " +
+                        pageEntity.getPath());
+                continue;
+            }
+            IndexEntity newIndexEntity = new IndexEntity();
+            newIndexEntity.setPage(pageEntity);
+            newIndexEntity.setLemma(lemmaEntity);
+            newIndexEntity.setRank((float) lemmaEntry.getValue().positions().size());
+            if (positionalIndex) {
+                newIndexEntity.setPositions(PositionCodec.encode(lemmaEntry.getValue().positions()));
+            }
+            if (!lemmaEntry.getValue().offsets().isEmpty()) {
+                newIndexEntity.setOffsets(PositionCodec.encode(lemmaEntry.getValue().offsets()));
+            }
+            newIndexEntities.add(newIndexEntity);
+            lemmaRanks.put(lemmaEntity.getId(), newIndexEntity.getRank());
+        }
+        return lemmaRanks;
+    }
+}
@@ -0,0 +1,146 @@
+package searchengine.services;
+
+import lombok.extern.log4j.Log4j2;
+import searchengine.services.helpers.PageRecord;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+@Log4j2
+public class PageWriterThread extends Thread {
+    private static final long POLL_TIMEOUT_MS = 100L;
+    private static final int LEMMA_FLUSH_INTERVAL_BATCHES = 20;
+
+    private final SiteIndexerThread parentSiteThread;
+    private final PageWriteService pageWriteService;
+    private final BlockingQueue<PageRecord> queue;
+    private final int batchSize;
+    private final LemmaFrequencyTable lemmaTable;
+    private volatile boolean finished = false;
+    private long writtenPageCount = 0L;
+    private long writtenBatchCount = 0L;
+    private long writeTimeNanos = 0L;
+
+    /**
+     * Конструктор потока записи страниц сайта в БД. При полной индексации нового (не активного) поколения сайта
+     * его леммы принадлежат только этому потоку, поэтому их частоты накапливаются в памяти в таблице лемм
+     * {@link LemmaFrequencyTable} и записываются в БД пакетами
+     *
+     * @param parentSiteThread поток индексации сайта {@link SiteIndexerThread}
+     */
+    public PageWriterThread(SiteIndexerThread parentSiteThread) {
+        super("pageWriter-" + parentSiteThread.getSiteEntity().getId());
+        this.parentSiteThread = parentSiteThread;
+        pageWriteService = parentSiteThread.getPageWriteService();
+        queue = new ArrayBlockingQueue<>(pageWriteService.getQueueCapacity());
+        batchSize = pageWriteService.getBatchSize();
+        lemmaTable = parentSiteThread.getSiteEntity().getActive() ? null : new LemmaFrequencyTable();
+    }
+
+    /**
+     * Метод передает обработанную страницу в очередь записи. Если очередь заполнена, то метод ожидает
+     * освобождения места (так загрузка страниц приостанавливается, пока БД не успевает их записывать).
+     * При прекращении индексации страница отбрасывается
+     *
+     * @param pageRecord обработанная страница {@link PageRecord}
+     */
+    public void write(PageRecord pageRecord) {
+        try {
+            while (!parentSiteThread.checkIfIndexingCancelled()) {
+                if (queue.offer(pageRecord, POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Метод сообщает потоку, что новых страниц не будет, и ожидает записи оставшихся в очереди страниц
+     */
+    public void finish() {
+        finished = true;
+        try {
+            join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Основной метод потока забирает страницы из очереди порциями (не более batchSize страниц) и записывает
+     * каждую порцию в БД одной транзакцией. После прекращения индексации страницы из очереди отбрасываются.
+     * Накопленные частоты лемм записываются в БД каждые LEMMA_FLUSH_INTERVAL_BATCHES порций и по завершении
+     * (в том числе прерванном, так как неудачное поколение может стать активным). По завершении в лог выводится
+     * пропускная способность записи
+     */
+    @Override
+    public void run() {
+        long startTimeMillis = System.currentTimeMillis();
+        List<PageRecord> batch = new ArrayList<>(batchSize);
+        try {
+            while (true) {
+                PageRecord pageRecord = queue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                if (pageRecord == null) {
+                    if (finished && queue.isEmpty()) {
+                        break;
+                    }
+                    continue;
+                }
+                batch.add(pageRecord);
+                queue.drainTo(batch, batchSize - 1);
+                if (!parentSiteThread.checkIfIndexingCancelled()) {
+                    writeBatch(batch);
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        flushLemmaFrequencies();
+        long writeTimeMillis = TimeUnit.NANOSECONDS.toMillis(writeTimeNanos);
+        log.info("Записано страниц сайта " + parentSiteThread.getSiteLink() + ": " + writtenPageCount + " (" +
+                writtenBatchCount + " транзакций) за " + writeTimeMillis + " мс записи в БД, " +
+                (System.currentTimeMillis() - startTimeMillis) + " мс всего; " +
+                (writeTimeMillis > 0 ? writtenPageCount * 1000 / writeTimeMillis : writtenPageCount) + " стр/с");
+    }
+
+    private void writeBatch(List<PageRecord> batch) {
+        try {
+            parentSiteThread.updateSiteStatusTime();
+            long startTimeNanos = System.nanoTime();
+            pageWriteService.writePages(parentSiteThread.getSiteEntity(), batch, lemmaTable);
+            writeTimeNanos += System.nanoTime() - startTimeNanos;
+            writtenPageCount += batch.size();
+            writtenBatchCount++;
+            if (writtenBatchCount % LEMMA_FLUSH_INTERVAL_BATCHES == 0) {
+                flushLemmaFrequencies();
+            }
+            log.debug("Записана порция из " + batch.size() + " страниц сайта " + parentSiteThread.getSiteLink() +
+                    ", в очереди " + queue.size());
+        } catch (Exception ex) {
+            log.error("Ошибка записи страниц сайта " + parentSiteThread.getSiteLink() + ": " + ex.getMessage());
+            parentSiteThread.cancelIndexing(ex.getMessage());
+        }
+    }
+
+    private void flushLemmaFrequencies() {
+        if (lemmaTable == null) {
+            return;
+        }
+        try {
+            long startTimeNanos = System.nanoTime();
+            int flushedCount = pageWriteService.flushLemmaFrequencies(lemmaTable);
+            writeTimeNanos += System.nanoTime() - startTimeNanos;
+            log.debug("Записаны частоты " + flushedCount + " из " + lemmaTable.size() + " лемм сайта " +
+                    parentSiteThread.getSiteLink());
+        } catch (Exception ex) {
+            log.error("Ошибка записи частот лемм сайта " + parentSiteThread.getSiteLink() + ": " + ex.getMessage());
+            parentSiteThread.cancelIndexing(ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package searchengine.services;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import searchengine.config.BotSettings;
+
+import javax.annotation.PreDestroy;
+import java.util.Locale;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static searchengine.services.UrlTools.getSiteLink;
+
+@Log4j2
+@Service
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class PolitenessScheduler {
+    private final BotSettings botSettings;
+    private final Map<String, HostSlots> hostSlots = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "politenessTimer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Метод выделяет запросу к серверу очередной слот загрузки. Слоты сервера выделяются в порядке обращений
+     * с интервалом, равным задержке сервера (min-delay либо Crawl-delay из robots.txt, если он больше). Ожидающий
+     * слота поток не блокируется: возвращаемый результат завершается таймером в момент наступления слота
+     *
+     * @param link адрес загружаемой страницы
+     * @return Результат, завершающийся в момент, когда к серверу можно отправить запрос
+     */
+    public CompletableFuture<Void> acquire(String link) {
+        long waitNanos = getHostSlots(getHostKey(link)).reserve();
+        if (waitNanos <= 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> slot = new CompletableFuture<>();
+        timer.schedule(() -> slot.complete(null), waitNanos, TimeUnit.NANOSECONDS);
+        return slot;
+    }
+
+    /**
+     * Метод задает задержку между запросами к серверу по значению Crawl-delay из robots.txt. Задержка не может
+     * быть меньше min-delay из конфигурации
+     *
+     * @param link             адрес сайта или любой его страницы
+     * @param crawlDelayMillis значение Crawl-delay в миллисекундах
+     */
+    public void setCrawlDelay(String link, long crawlDelayMillis) {
+        long delayMillis = Math.max(crawlDelayMillis, botSettings.getMinDelay());
+        getHostSlots(getHostKey(link)).setDelay(delayMillis);
+        log.info("Задержка между запросами к " + getHostKey(link) + ": " + delayMillis + " мс (Crawl-delay)");
+    }
+
+    /**
+     * Метод удаляет состояние сервера (в том числе слоты, зарезервированные прерванной индексацией)
+     *
+     * @param link адрес сайта или любой его страницы
+     */
+    public void releaseHost(String link) {
+        hostSlots.remove(getHostKey(link));
+    }
+
+    /**
+     * Метод находит в robots.txt значение Crawl-delay для бота: из группы User-agent, имя которой входит в
+     * user-agent бота, либо (если такой группы нет) из группы User-agent: *
+     *
+     * @param robotsTxt текст robots.txt
+     * @param userAgent user-agent бота
+     * @return Значение Crawl-delay в миллисекундах, если оно задано
+     */
+    public static OptionalLong parseCrawlDelay(String robotsTxt, String userAgent) {
+        String botAgent = userAgent.toLowerCase(Locale.ROOT);
+        Long anyAgentDelay = null;
+        Long botDelay = null;
+        boolean inAgentLines = false;
+        boolean groupForAny = false;
+        boolean groupForBot = false;
+        for (String line : robotsTxt.split("\\R")) {
+            int commentIndex = line.indexOf('#');
+            String[] field = (commentIndex >= 0 ? line.substring(0, commentIndex) : line).split(":", 2);
+            if (field.length < 2) {
+                continue;
+            }
+            String name = field[0].trim().toLowerCase(Locale.ROOT);
+            String value = field[1].trim();
+            if (name.equals("user-agent")) {
+                if (!inAgentLines) {
+                    groupForAny = false;
+                    groupForBot = false;
+                }
+                inAgentLines = true;
+                String agent = value.toLowerCase(Locale.ROOT);
+                groupForAny |= agent.equals("*");
+                groupForBot |= !agent.isEmpty() && !agent.equals("*") && botAgent.contains(agent);
+                continue;
+            }
+            inAgentLines = false;
+            if (!name.equals("crawl-delay") || !(groupForAny || groupForBot)) {
+                continue;
+            }
+            try {
+                long delayMillis = Math.round(Double.parseDouble(value) * 1000);
+                if (groupForBot) {
+                    botDelay = delayMillis;
+                } else {
+                    anyAgentDelay = delayMillis;
+                }
+            } catch (NumberFormatException e) {
+                log.debug("Некорректное значение Crawl-delay: " + value);
+            }
+        }
+        Long delay = botDelay != null ? botDelay : anyAgentDelay;
+        return delay == null ? OptionalLong.empty() : OptionalLong.of(delay);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+
+    private HostSlots getHostSlots(String hostKey) {
+        return hostSlots.computeIfAbsent(hostKey, key -> new HostSlots(botSettings.getMinDelay()));
+    }
+
+    private String getHostKey(String link) {
+        String siteLink = getSiteLink(link);
+        return (siteLink.isEmpty() ? link : siteLink).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Слоты загрузки одного сервера: время следующего свободного слота и интервал между слотами
+     */
+    private static class HostSlots {
+        private long delayNanos;
+        private long nextSlotNanos;
+
+        HostSlots(long delayMillis) {
+            delayNanos = TimeUnit.MILLISECONDS.toNanos(delayMillis);
+            nextSlotNanos = System.nanoTime();
+        }
+
+        synchronized void setDelay(long delayMillis) {
+            delayNanos = TimeUnit.MILLISECONDS.toNanos(delayMillis);
+        }
+
+        /**
+         * Метод резервирует ближайший свободный слот
+         *
+         * @return Время до наступления слота в наносекундах
+         */
+        synchronized long reserve() {
+            long nowNanos = System.nanoTime();
+            long slotNanos = Math.max(nowNanos, nextSlotNanos);
+            nextSlotNanos = slotNanos + delayNanos;
+            return slotNanos - nowNanos;
+        }
+    }
+}
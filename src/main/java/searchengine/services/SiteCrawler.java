@@ -0,0 +1,218 @@
+package searchengine.services;
+
+import lombok.extern.log4j.Log4j2;
+import searchengine.services.helpers.WebPageLoaderResponse;
+
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Log4j2
+public class SiteCrawler {
+    private static final long DISPATCH_WAIT_TIMEOUT_MS = 200L;
+
+    private final SiteIndexerThread parentSiteThread;
+    private final ExecutorService workers;
+    private final int maxInFlightPages;
+    private final SpilledFrontier frontier;
+    private int inFlightPages = 0;
+    private boolean pageCompleted = false;
+
+    /**
+     * Конструктор обходчика сайта
+     *
+     * @param parentSiteThread поток индексации сайта {@link SiteIndexerThread}
+     */
+    public SiteCrawler(SiteIndexerThread parentSiteThread) {
+        this.parentSiteThread = parentSiteThread;
+        maxInFlightPages = Math.max(parentSiteThread.getBotSettings().getMaxInFlightPages(), 1);
+        frontier = new SpilledFrontier(parentSiteThread.getBotSettings().getFrontierMemoryLimit(),
+                "site" + parentSiteThread.getSiteEntity().getId() + "-");
+        int workerCount = Runtime.getRuntime().availableProcessors();
+        AtomicInteger workerNumber = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(workerCount, runnable -> new Thread(runnable,
+                "pageIndexer-" + parentSiteThread.getSiteEntity().getId() + "-" + workerNumber.incrementAndGet()));
+    }
+
+    /**
+     * Метод обходит сайт, начиная с заданной страницы. Ссылки на еще не обработанные страницы помещаются в очередь
+     * (frontier, при большом количестве ссылок - с записью во временный файл {@link SpilledFrontier}), из которой
+     * поток обхода запускает загрузку страниц, пока количество одновременно обрабатываемых страниц не достигнет
+     * max-in-flight-pages. Страницы загружаются асинхронно, а индексируются фиксированным пулом потоков. Монитор
+     * обходчика защищает только счетчик обрабатываемых страниц, а очередь синхронизирована на собственном мониторе,
+     * поэтому чтение и запись временного файла очереди не блокируют завершение страниц. Обход завершается, когда
+     * очередь пуста и ни одна страница не обрабатывается (либо при прекращении индексации - после завершения уже
+     * начатых страниц)
+     *
+     * @param firstPath относительный путь к первой странице
+     */
+    public void crawl(String firstPath) {
+        frontier.add(firstPath);
+        try {
+            while (true) {
+                boolean cancelled = parentSiteThread.checkIfIndexingCancelled();
+                while (!cancelled && reservePageSlot()) {
+                    String path = pollFrontier();
+                    if (path == null) {
+                        break;
+                    }
+                    startPage(path);
+                }
+                if (awaitPageCompletion(cancelled)) {
+                    break;
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (UncheckedIOException ex) {
+            log.error("Ошибка очереди обхода сайта " + parentSiteThread.getSiteLink() + ": " + ex.getMessage());
+            parentSiteThread.cancelIndexing(ex.getMessage());
+            waitForInFlightPages();
+        }
+        frontier.close();
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(DISPATCH_WAIT_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Метод резервирует место для очередной страницы, если количество обрабатываемых страниц меньше
+     * max-in-flight-pages
+     *
+     * @return True, если место зарезервировано
+     */
+    private synchronized boolean reservePageSlot() {
+        if (inFlightPages >= maxInFlightPages) {
+            return false;
+        }
+        inFlightPages++;
+        return true;
+    }
+
+    /**
+     * Метод извлекает из очереди следующую ссылку для зарезервированного места. Очередь читается без монитора
+     * обходчика; если ссылок нет (или чтение файла очереди завершилось ошибкой), место освобождается
+     *
+     * @return Относительный путь к странице, либо null, если очередь пуста
+     */
+    private String pollFrontier() {
+        String path;
+        try {
+            path = frontier.poll();
+        } catch (UncheckedIOException ex) {
+            releasePageSlot();
+            throw ex;
+        }
+        if (path == null) {
+            releasePageSlot();
+        }
+        return path;
+    }
+
+    private synchronized void releasePageSlot() {
+        inFlightPages--;
+    }
+
+    /**
+     * Метод проверяет, завершен ли обход, и при необходимости ожидает завершения очередной страницы. Очередь
+     * проверяется только при отсутствии обрабатываемых страниц: все найденные на странице ссылки добавляются в
+     * очередь до освобождения ее места, поэтому в этот момент очередь никем не изменяется. Если страница была
+     * завершена после предыдущей проверки, ожидание не выполняется
+     *
+     * @param cancelled признак прекращения индексации
+     * @return True, если обход завершен
+     */
+    private synchronized boolean awaitPageCompletion(boolean cancelled) throws InterruptedException {
+        if (inFlightPages == 0 && (cancelled || frontier.isEmpty())) {
+            return true;
+        }
+        if (!pageCompleted) {
+            wait(DISPATCH_WAIT_TIMEOUT_MS);
+        }
+        pageCompleted = false;
+        return false;
+    }
+
+    /**
+     * Метод освобождает место завершенной страницы и оповещает поток обхода
+     */
+    private synchronized void completePage() {
+        inFlightPages--;
+        pageCompleted = true;
+        notifyAll();
+    }
+
+    /**
+     * Метод ожидает завершения уже начатых страниц (вызывается при прекращении обхода из-за ошибки)
+     */
+    private synchronized void waitForInFlightPages() {
+        try {
+            while (inFlightPages > 0) {
+                wait(DISPATCH_WAIT_TIMEOUT_MS);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Метод запускает асинхронную загрузку страницы (место для нее уже зарезервировано), после которой страница
+     * индексируется в пуле потоков. По завершении обработки страницы поток обхода оповещается о свободном месте
+     *
+     * @param path относительный путь к странице
+     */
+    private void startPage(String path) {
+        log.debug("Запущена загрузка и обработка страницы: " + parentSiteThread.getSiteLink() + path);
+        parentSiteThread.getWebPageLoader()
+                .loadWebPageAsync(parentSiteThread.getSiteLink() + path, parentSiteThread)
+                .thenAcceptAsync(webPageLoaderResponse -> processPage(path, webPageLoaderResponse), workers)
+                .whenComplete((result, ex) -> {
+                    if (ex != null) {
+                        log.error("Ошибка обработки страницы " + parentSiteThread.getSiteLink() + path + ": " +
+                                ex.getMessage());
+                    }
+                    completePage();
+                });
+    }
+
+    /**
+     * Метод индексирует загруженную страницу и добавляет найденные на ней новые ссылки в очередь обхода одним
+     * вызовом, без монитора обходчика
+     *
+     * @param path                  относительный путь к странице
+     * @param webPageLoaderResponse результат загрузки страницы {@link WebPageLoaderResponse}
+     */
+    private void processPage(String path, WebPageLoaderResponse webPageLoaderResponse) {
+        if (parentSiteThread.checkIfIndexingCancelled()) {
+            return;
+        }
+        WebPageIndexer webPageIndexer = new WebPageIndexer(path, webPageLoaderResponse, parentSiteThread);
+        webPageIndexer.indexWebPage();
+        if (!parentSiteThread.getSinglePagePath().isEmpty()) {
+            return;
+        }
+        Set<String> links = webPageIndexer.parseWebPage();
+        List<String> newLinks = new ArrayList<>();
+        for (String link : links) {
+            if (parentSiteThread.addNewUniqueLink(link)) {
+                newLinks.add(link);
+            }
+        }
+        try {
+            frontier.addAll(newLinks);
+        } catch (UncheckedIOException ex) {
+            log.error("Ошибка очереди обхода сайта " + parentSiteThread.getSiteLink() + ": " + ex.getMessage());
+            parentSiteThread.cancelIndexing(ex.getMessage());
+        }
+    }
+}
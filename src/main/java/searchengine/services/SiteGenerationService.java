@@ -0,0 +1,146 @@
+package searchengine.services;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import searchengine.config.Site;
+import searchengine.model.IndexStatusType;
+import searchengine.model.SiteEntity;
+import searchengine.repositories.IndexRepository;
+import searchengine.repositories.LemmaRepository;
+import searchengine.repositories.PageRepository;
+import searchengine.repositories.SiteRepository;
+import searchengine.services.index.LemmaFilterIndex;
+import searchengine.services.index.SearchIndex;
+import searchengine.services.index.SuggestIndex;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+
+@Log4j2
+@Service
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class SiteGenerationService {
+    private final SiteRepository siteRepository;
+    private final PageRepository pageRepository;
+    private final LemmaRepository lemmaRepository;
+    private final IndexRepository indexRepository;
+    private final SearchIndex searchIndex;
+    private final SuggestIndex suggestIndex;
+    private final LemmaFilterIndex lemmaFilterIndex;
+    @Qualifier("taskExecutor")
+    private final Executor taskExecutor;
+
+    /**
+     * Метод создает новое (пока не активное) поколение сайта, в которое записываются результаты индексации.
+     * Поиск по сайту до завершения индексации продолжает выполняться по активному поколению. Неактивные поколения,
+     * оставшиеся от прерванных ранее индексаций (например, при остановке приложения), удаляются
+     *
+     * @param site сайт из конфигурации {@link Site}
+     * @return Новое поколение сайта {@link SiteEntity}
+     */
+    public SiteEntity prepareGeneration(Site site) {
+        for (SiteEntity staleSiteEntity : siteRepository.findAllByUrlAndActiveFalse(site.getUrl())) {
+            searchIndex.removeSite(staleSiteEntity.getId());
+            lemmaFilterIndex.removeSite(staleSiteEntity.getId());
+            purgeSite(staleSiteEntity.getId());
+        }
+        return insertSite(site, false);
+    }
+
+    /**
+     * Метод добавляет в БД новый сайт (поколение сайта)
+     *
+     * @param site   сайт {@link Site}
+     * @param active признак активного поколения (по которому выполняется поиск)
+     * @return Новый объект {@link SiteEntity}
+     */
+    public SiteEntity insertSite(Site site, boolean active) {
+        SiteEntity siteEntity = new SiteEntity();
+        siteEntity.setStatus(IndexStatusType.INDEXING);
+        siteEntity.setStatusTime(Instant.now());
+        siteEntity.setUrl(site.getUrl());
+        siteEntity.setName(site.getName());
+        siteEntity.setDocCount(0);
+        siteEntity.setTokenCount(0L);
+        siteEntity.setActive(active);
+        siteEntity = siteRepository.save(siteEntity);
+        if (active) {
+            lemmaFilterIndex.addSite(siteEntity.getId());
+            suggestIndex.putActiveSite(siteEntity.getUrl(), siteEntity.getId());
+        }
+        return siteEntity;
+    }
+
+    /**
+     * Метод завершает индексацию поколения сайта. Успешно проиндексированное поколение (либо неудачно
+     * проиндексированное, если другого поколения у сайта нет) одним запросом делается активным вместо предыдущего,
+     * которое затем удаляется в фоне. Если индексация не удалась, а у сайта есть активное поколение, то новое
+     * поколение получает статус FAILED (чтобы не считаться индексируемым до удаления) и удаляется в фоне, а поиск
+     * продолжает выполняться по предыдущему (его статус не меняется, так как оно остается исправным). Словарь лемм
+     * для подсказок (вместе с идентификатором активного поколения по адресу сайта) перестраивается по активному
+     * поколению, так же как и фильтр лемм сайта {@link LemmaFilterIndex}
+     *
+     * @param siteEntity поколение сайта {@link SiteEntity}
+     * @param failed     признак неудачной (прерванной) индексации
+     * @param lastError  текст ошибки индексации
+     */
+    public void completeGeneration(SiteEntity siteEntity, boolean failed, String lastError) {
+        IndexStatusType status = failed ? IndexStatusType.FAILED : IndexStatusType.INDEXED;
+        if (siteEntity.getActive()) {
+            siteRepository.updateSiteStatusBySiteId(siteEntity.getId(), status, Instant.now(), lastError);
+            suggestIndex.rebuildSite(siteEntity.getId());
+            lemmaFilterIndex.rebuildSite(siteEntity.getId());
+            return;
+        }
+        Optional<SiteEntity> previousSiteEntity = siteRepository.findByUrlAndActiveTrue(siteEntity.getUrl());
+        if (failed && previousSiteEntity.isPresent()) {
+            siteRepository.updateSiteStatusBySiteId(siteEntity.getId(), status, Instant.now(), lastError);
+            log.warn("Индексация сайта " + siteEntity.getUrl() + " не завершена (" + lastError + "), поиск " +
+                    "выполняется по предыдущему поколению индекса");
+            discardGeneration(siteEntity.getId());
+            return;
+        }
+        siteRepository.updateSiteStatusBySiteId(siteEntity.getId(), status, Instant.now(), lastError);
+        // Фильтр строится до активации, чтобы активное поколение ни на миг не осталось без фильтра
+        lemmaFilterIndex.rebuildSite(siteEntity.getId());
+        siteRepository.activateSite(siteEntity.getUrl(), siteEntity.getId());
+        searchIndex.activateSite(siteEntity.getId());
+        siteEntity.setActive(true);
+        suggestIndex.putActiveSite(siteEntity.getUrl(), siteEntity.getId());
+        suggestIndex.rebuildSite(siteEntity.getId());
+        log.info("Активировано новое поколение индекса сайта " + siteEntity.getUrl());
+        previousSiteEntity.ifPresent(previous -> discardGeneration(previous.getId()));
+    }
+
+    /**
+     * Метод удаляет поколение сайта из поискового индекса, а из БД - в фоновом потоке
+     *
+     * @param siteId идентификатор поколения сайта
+     */
+    private void discardGeneration(int siteId) {
+        searchIndex.removeSite(siteId);
+        suggestIndex.removeSite(siteId);
+        lemmaFilterIndex.removeSite(siteId);
+        taskExecutor.execute(() -> {
+            try {
+                purgeSite(siteId);
+            } catch (Exception ex) {
+                log.error("Ошибка удаления поколения сайта " + siteId + ": " + ex.getMessage());
+            }
+        });
+    }
+
+    private void purgeSite(int siteId) {
+        long startTimeMillis = System.currentTimeMillis();
+        indexRepository.deleteAllBySiteId(siteId);
+        lemmaRepository.deleteAllBySiteId(siteId);
+        pageRepository.deleteAllBySiteId(siteId);
+        siteRepository.deleteById(siteId);
+        log.info("Удалено поколение сайта " + siteId + " за " + (System.currentTimeMillis() - startTimeMillis) +
+                " мс");
+    }
+}
@@ -2,21 +2,14 @@ package searchengine.services;
 
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
-import lombok.Setter;
-import lombok.Synchronized;
 import lombok.extern.log4j.Log4j2;
 import searchengine.Application;
 import searchengine.config.BotSettings;
+import searchengine.config.SearchSettings;
 import searchengine.model.*;
-import searchengine.repositories.IndexRepository;
-import searchengine.repositories.LemmaRepository;
-import searchengine.repositories.PageRepository;
 import searchengine.repositories.SiteRepository;
 
 import java.time.Instant;
-import java.util.HashSet;
-import java.util.Set;
-import java.util.concurrent.ForkJoinPool;
 
 @Log4j2
 @RequiredArgsConstructor
@@ -27,54 +20,66 @@ public class SiteIndexerThread extends Thread {
 
     private final SiteEntity siteEntity;
     private final SiteRepository siteRepository;
-    private final PageRepository pageRepository;
-    private final LemmaRepository lemmaRepository;
-    private final IndexRepository indexRepository;
     private final BotSettings botSettings;
+    private final SearchSettings searchSettings;
     private final LemmaAnalyzerService lemmaAnalyzer;
+    private final PageWriteService pageWriteService;
+    private final SiteGenerationService siteGenerationService;
+    private final WebPageFetcher webPageFetcher;
+    private final PolitenessScheduler politenessScheduler;
     private final String singlePagePath;
-    private final Set<String> uniquePaths = new HashSet<>();
     private final WebPageLoader webPageLoader = new WebPageLoader();
-    @Setter
-    private volatile long lastRequestTimeMillis = 0L;
     private volatile long lastSiteUpdateTimeMillis = 0L;
     private volatile boolean isCancelled = false;
     private volatile String lastError = null;
     private String siteLink;
+    private PageWriterThread pageWriter;
+    private UrlFingerprintSet seenPaths;
 
     /**
-     * Основной метод потока {@link SiteIndexerThread} индексации сайта создает пул ForkJoinPool и запускает
-     * первую дочернюю ForkJoin-задачу {@link PageIndexerTask} для обработки первой страницы сайта (в режиме
-     * индексации всех сайтов), либо одной страницы (в режиме индексации конкретной страницы). Ожидает завершения
-     * и по итогам обновляет в БД статус сайта.
+     * Основной метод потока {@link SiteIndexerThread} индексации сайта запускает обход сайта {@link SiteCrawler}
+     * с первой страницы сайта (в режиме индексации всех сайтов), либо обработку одной страницы (в режиме индексации
+     * конкретной страницы). Обработанные страницы записываются в БД отдельным потоком {@link PageWriterThread}.
+     * Ожидает завершения загрузки и записи страниц и по итогам обновляет в БД статус сайта. Перед обходом сайта
+     * из robots.txt читается Crawl-delay
      */
-    @SuppressWarnings("resource")
     @Override
     public void run() {
         siteLink = siteEntity.getUrl().toLowerCase();
         String firstPath = singlePagePath.isEmpty() ? "/" : singlePagePath;
-        uniquePaths.add(firstPath);
+        seenPaths = new UrlFingerprintSet(botSettings.getMaxPageCount());
+        seenPaths.add(firstPath);
         lastSiteUpdateTimeMillis = System.currentTimeMillis();
-        ForkJoinPool forkJoinPool = new ForkJoinPool();
-        forkJoinPool.invoke(new PageIndexerTask(firstPath, this));
-        siteRepository.updateSiteStatusBySiteId(siteEntity.getId(),
-                isCancelled ? IndexStatusType.FAILED : IndexStatusType.INDEXED, Instant.now(), lastError);
+        applyCrawlDelay();
+        pageWriter = new PageWriterThread(this);
+        pageWriter.start();
+        new SiteCrawler(this).crawl(firstPath);
+        pageWriter.finish();
+        politenessScheduler.releaseHost(siteLink);
+        siteGenerationService.completeGeneration(siteEntity, isCancelled, lastError);
+    }
+
+    /**
+     * Метод загружает robots.txt сайта и, если в нем задан Crawl-delay для бота, устанавливает соответствующую
+     * задержку между запросами к сайту в планировщике {@link PolitenessScheduler}
+     */
+    private void applyCrawlDelay() {
+        String robotsTxt = webPageFetcher.fetchTextAsync(siteLink + "/robots.txt").join();
+        PolitenessScheduler.parseCrawlDelay(robotsTxt, botSettings.getUserAgent())
+                .ifPresent(crawlDelayMillis -> politenessScheduler.setCrawlDelay(siteLink, crawlDelayMillis));
     }
 
     /**
      * Метод добавляет ссылку newLink в список уже обработанных страниц. Если количество обработанных страниц
-     * достигло установленного в конфигурационном файле лимита, то ссылка не добавляется.
+     * достигло установленного в конфигурационном файле лимита, то ссылка не добавляется. Вызывается потоками обхода
+     * без общей блокировки (см. {@link UrlFingerprintSet}).
      *
      * @param newLink относительная ссылка на страницу сайта
      * @return True, если ссылка newLink была добавлена в список. False, если ссылка не была добавлена и ее
      * в дальнейшем обрабатывать не надо.
      */
-    @Synchronized
     public boolean addNewUniqueLink(String newLink) {
-        if (uniquePaths.size() < botSettings.getMaxPageCount()) {
-            return uniquePaths.add(newLink.toLowerCase());
-        }
-        return false;
+        return seenPaths.add(newLink);
     }
 
     /**
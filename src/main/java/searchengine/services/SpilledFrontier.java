@@ -0,0 +1,143 @@
+package searchengine.services;
+
+import lombok.extern.log4j.Log4j2;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Collection;
+
+/**
+ * Очередь (FIFO) ссылок, ожидающих обхода. В памяти хранится не более memoryLimit ссылок, остальные записываются
+ * во временный файл и читаются из него порциями по мере освобождения очереди в памяти. Пока в файле есть ссылки,
+ * новые ссылки также добавляются в файл, поэтому порядок обхода сохраняется. Методы очереди синхронизированы
+ * на ее собственном мониторе, поэтому запись во временный файл и чтение из него не блокируют потоки, которые
+ * синхронизируются на других объектах (например, поток обхода, ожидающий завершения страниц)
+ */
+@Log4j2
+public class SpilledFrontier implements Closeable {
+    private final ArrayDeque<String> memoryQueue = new ArrayDeque<>();
+    private final int memoryLimit;
+    private final String filePrefix;
+    private Path spillFile;
+    private DataOutputStream spillOutput;
+    private DataInputStream spillInput;
+    private long spilledCount = 0L;
+
+    /**
+     * Конструктор очереди
+     *
+     * @param memoryLimit максимальное количество ссылок в памяти
+     * @param filePrefix  префикс имени временного файла
+     */
+    public SpilledFrontier(int memoryLimit, String filePrefix) {
+        this.memoryLimit = Math.max(memoryLimit, 1);
+        this.filePrefix = filePrefix;
+    }
+
+    public synchronized void add(String path) {
+        if (spilledCount == 0 && memoryQueue.size() < memoryLimit) {
+            memoryQueue.add(path);
+            return;
+        }
+        try {
+            if (spillOutput == null) {
+                spillFile = Files.createTempFile(filePrefix, ".frontier");
+                spillOutput = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(spillFile)));
+                log.debug("Очередь обхода превысила " + memoryLimit + " ссылок, ссылки записываются в " + spillFile);
+            }
+            byte[] bytes = path.getBytes(StandardCharsets.UTF_8);
+            spillOutput.writeInt(bytes.length);
+            spillOutput.write(bytes);
+            spilledCount++;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Метод добавляет в очередь ссылки, найденные на одной странице, за одно получение монитора очереди
+     *
+     * @param paths относительные пути страниц
+     */
+    public synchronized void addAll(Collection<String> paths) {
+        for (String path : paths) {
+            add(path);
+        }
+    }
+
+    /**
+     * Метод извлекает из очереди первую ссылку. Если очередь в памяти пуста, то она заполняется из файла
+     *
+     * @return Ссылка, либо null, если очередь пуста
+     */
+    public synchronized String poll() {
+        if (memoryQueue.isEmpty() && spilledCount > 0) {
+            readSpilled();
+        }
+        return memoryQueue.poll();
+    }
+
+    public synchronized boolean isEmpty() {
+        return memoryQueue.isEmpty() && spilledCount == 0;
+    }
+
+    /**
+     * Метод удаляет временный файл очереди
+     */
+    @Override
+    public synchronized void close() {
+        memoryQueue.clear();
+        deleteSpillFile();
+    }
+
+    private void deleteSpillFile() {
+        spilledCount = 0L;
+        try {
+            if (spillOutput != null) {
+                spillOutput.close();
+            }
+            if (spillInput != null) {
+                spillInput.close();
+            }
+            if (spillFile != null) {
+                Files.deleteIfExists(spillFile);
+            }
+        } catch (IOException ex) {
+            log.warn("Ошибка удаления временного файла очереди обхода " + spillFile + ": " + ex.getMessage());
+        }
+        spillOutput = null;
+        spillInput = null;
+        spillFile = null;
+    }
+
+    /**
+     * Метод переносит из файла в память очередную порцию ссылок (не более memoryLimit). Когда файл прочитан
+     * полностью, он удаляется
+     */
+    private void readSpilled() {
+        try {
+            spillOutput.flush();
+            if (spillInput == null) {
+                spillInput = new DataInputStream(new BufferedInputStream(Files.newInputStream(spillFile)));
+            }
+            while (spilledCount > 0 && memoryQueue.size() < memoryLimit) {
+                memoryQueue.add(new String(spillInput.readNBytes(spillInput.readInt()), StandardCharsets.UTF_8));
+                spilledCount--;
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        if (spilledCount == 0) {
+            deleteSpillFile();
+        }
+    }
+}
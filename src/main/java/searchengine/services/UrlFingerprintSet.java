@@ -0,0 +1,111 @@
+package searchengine.services;
+
+import searchengine.services.index.Hashing;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Множество уже встреченных при обходе сайта ссылок. Вместо строк хранятся 64-битные отпечатки (хэши) ссылок
+ * в массивах примитивов с открытой адресацией. Множество разбито на STRIPE_COUNT независимых частей со своими
+ * блокировками, поэтому потоки обхода, добавляющие разные ссылки, почти не ожидают друг друга
+ */
+public class UrlFingerprintSet {
+    private static final int STRIPE_COUNT = 64;
+    private static final int STRIPE_INITIAL_CAPACITY = 64;
+    private static final long EMPTY = 0L;
+
+    private final Stripe[] stripes = new Stripe[STRIPE_COUNT];
+    private final AtomicInteger size = new AtomicInteger();
+    private final int maxSize;
+
+    /**
+     * Конструктор множества с ограничением количества ссылок
+     *
+     * @param maxSize максимальное количество ссылок (max-page-count)
+     */
+    public UrlFingerprintSet(int maxSize) {
+        this.maxSize = maxSize;
+        for (int i = 0; i < STRIPE_COUNT; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Метод добавляет ссылку (без учета регистра), если ее еще нет в множестве и не достигнуто максимальное
+     * количество ссылок
+     *
+     * @param path относительная ссылка на страницу сайта
+     * @return True, если ссылка добавлена
+     */
+    public boolean add(String path) {
+        long fingerprint = fingerprint(path.toLowerCase(Locale.ROOT));
+        Stripe stripe = stripes[(int) (fingerprint >>> 58)];
+        synchronized (stripe) {
+            if (stripe.contains(fingerprint)) {
+                return false;
+            }
+            if (size.incrementAndGet() > maxSize) {
+                size.decrementAndGet();
+                return false;
+            }
+            stripe.insert(fingerprint);
+            return true;
+        }
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Метод вычисляет 64-битный отпечаток ссылки {@link Hashing#hash64(String)}: благодаря перемешиванию битов
+     * старшие биты, выбирающие часть множества, зависят от всех символов ссылки. Нулевое значение зарезервировано
+     * под пустую ячейку
+     */
+    private static long fingerprint(String path) {
+        long hash = Hashing.hash64(path);
+        return hash == EMPTY ? 1L : hash;
+    }
+
+    /**
+     * Часть множества: хэш-таблица с открытой адресацией (линейное пробирование), заполняемая не более чем
+     * наполовину
+     */
+    private static class Stripe {
+        private long[] table = new long[STRIPE_INITIAL_CAPACITY];
+        private int count = 0;
+
+        boolean contains(long fingerprint) {
+            int mask = table.length - 1;
+            for (int i = (int) fingerprint & mask; table[i] != EMPTY; i = (i + 1) & mask) {
+                if (table[i] == fingerprint) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void insert(long fingerprint) {
+            if (++count * 2 > table.length) {
+                long[] oldTable = table;
+                table = new long[oldTable.length * 2];
+                for (long oldFingerprint : oldTable) {
+                    if (oldFingerprint != EMPTY) {
+                        put(oldFingerprint);
+                    }
+                }
+            }
+            put(fingerprint);
+        }
+
+        private void put(long fingerprint) {
+            int mask = table.length - 1;
+            int i = (int) fingerprint & mask;
+            while (table[i] != EMPTY) {
+                i = (i + 1) & mask;
+            }
+            table[i] = fingerprint;
+        }
+    }
+}
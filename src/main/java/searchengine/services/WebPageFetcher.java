@@ -0,0 +1,218 @@
+package searchengine.services;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import searchengine.config.BotSettings;
+import searchengine.services.helpers.WebPageLoaderResponse;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.Charset;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@Log4j2
+@Service
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class WebPageFetcher {
+    private static final Pattern CHARSET_PATTERN = Pattern.compile("charset=\"?([^\\s;\"]+)",
+            Pattern.CASE_INSENSITIVE);
+    private static final int MIN_ERROR_STATUS_CODE = 400;
+
+    private final BotSettings botSettings;
+    private HttpClient httpClient;
+    private ScheduledThreadPoolExecutor timeoutTimer;
+
+    /**
+     * Метод создает общий для всех сайтов HTTP-клиент: соединения с сервером переиспользуются между запросами,
+     * а с серверами, поддерживающими HTTP/2, запросы выполняются по одному соединению параллельно. Также создается
+     * таймер общего таймаута загрузки, задачи которого удаляются из очереди сразу после получения ответа
+     */
+    @PostConstruct
+    public void init() {
+        httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(Duration.ofMillis(botSettings.getConnectTimeout()))
+                .build();
+        timeoutTimer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "fetchTimeoutTimer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timeoutTimer.setRemoveOnCancelPolicy(true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timeoutTimer.shutdownNow();
+    }
+
+    /**
+     * Метод асинхронно загружает web-страницу и разбирает ее с применением Jsoup. Ожидание заголовков ответа
+     * ограничено таймаутом чтения, а вся загрузка вместе с телом ответа - общим таймаутом, по истечении которого
+     * запрос отменяется. Возвращаемый результат никогда не завершается исключением: при любой ошибке загрузки
+     * возвращается ответ с признаком неудачной загрузки
+     *
+     * @param webPageLink адрес загружаемой web-страницы
+     * @return Результат загрузки {@link WebPageLoaderResponse} (статус-код, признак удачной загрузки,
+     * при удачной загрузке - документ Jsoup)
+     */
+    public CompletableFuture<WebPageLoaderResponse> fetchAsync(String webPageLink) {
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(toUri(webPageLink))
+                    .timeout(Duration.ofMillis(botSettings.getReadTimeout()))
+                    .header("User-Agent", botSettings.getUserAgent())
+                    .header("Referer", botSettings.getReferrer())
+                    .GET()
+                    .build();
+        } catch (IllegalArgumentException | URISyntaxException | IOException e) {
+            log.debug("Некорректный адрес web-страницы " + webPageLink + ": " + e.getMessage());
+            return CompletableFuture.completedFuture(new WebPageLoaderResponse(0, false, null));
+        }
+        CompletableFuture<HttpResponse<byte[]>> responseFuture = httpClient.sendAsync(request, responseInfo ->
+                responseInfo.statusCode() < MIN_ERROR_STATUS_CODE &&
+                        isHtmlContentType(responseInfo.headers().firstValue("Content-Type").orElse("")) ?
+                        HttpResponse.BodySubscribers.ofByteArray() : HttpResponse.BodySubscribers.replacing(null));
+        cancelOnTimeout(responseFuture);
+        return responseFuture.handle((response, ex) -> {
+            if (ex != null) {
+                Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                log.debug("Не удалось загрузить web-страницу " + webPageLink + ": " +
+                        (cause instanceof CancellationException ? "превышено время загрузки" : cause.toString()));
+                return new WebPageLoaderResponse(0, false, null);
+            }
+            return parseResponse(webPageLink, response);
+        });
+    }
+
+    /**
+     * Метод асинхронно загружает текстовый файл (например, robots.txt) с теми же таймаутами, что и web-страницы
+     *
+     * @param link адрес файла
+     * @return Текст файла, либо пустая строка, если файл не удалось загрузить
+     */
+    public CompletableFuture<String> fetchTextAsync(String link) {
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(toUri(link))
+                    .timeout(Duration.ofMillis(botSettings.getReadTimeout()))
+                    .header("User-Agent", botSettings.getUserAgent())
+                    .GET()
+                    .build();
+        } catch (IllegalArgumentException | URISyntaxException | IOException e) {
+            return CompletableFuture.completedFuture("");
+        }
+        CompletableFuture<HttpResponse<String>> responseFuture = httpClient.sendAsync(request,
+                HttpResponse.BodyHandlers.ofString());
+        cancelOnTimeout(responseFuture);
+        return responseFuture.handle((response, ex) ->
+                ex != null || response.statusCode() >= MIN_ERROR_STATUS_CODE ? "" : response.body());
+    }
+
+    /**
+     * Метод отменяет запрос (вместе с загрузкой тела ответа), если он не завершился за общий таймаут загрузки.
+     * Задача отмены снимается с таймера, как только запрос завершился, поэтому задачи уже загруженных страниц
+     * не накапливаются в таймере до истечения таймаута
+     *
+     * @param responseFuture результат асинхронного запроса
+     */
+    private void cancelOnTimeout(CompletableFuture<?> responseFuture) {
+        ScheduledFuture<?> timeout = timeoutTimer.schedule(() -> responseFuture.cancel(true),
+                botSettings.getTotalTimeout(), TimeUnit.MILLISECONDS);
+        responseFuture.whenComplete((response, ex) -> timeout.cancel(false));
+    }
+
+    /**
+     * Метод разбирает тело ответа как HTML-документ. Кодировка берется из заголовка Content-Type, а при ее
+     * отсутствии определяется Jsoup (по мета-тегам документа)
+     *
+     * @param webPageLink адрес загруженной web-страницы
+     * @param response    ответ сервера
+     * @return Результат загрузки {@link WebPageLoaderResponse}
+     */
+    private WebPageLoaderResponse parseResponse(String webPageLink, HttpResponse<byte[]> response) {
+        if (response.statusCode() >= MIN_ERROR_STATUS_CODE) {
+            log.debug("Не удалось загрузить web-страницу " + webPageLink + ": statusCode = " + response.statusCode());
+            return new WebPageLoaderResponse(response.statusCode(), false, null);
+        }
+        if (response.body() == null) {
+            log.debug("Не удалось загрузить web-страницу " + webPageLink + " (" + response.statusCode() +
+                    "): неподдерживаемый тип содержимого");
+            return new WebPageLoaderResponse(0, false, null);
+        }
+        try {
+            Document jsoupDocument = Jsoup.parse(new ByteArrayInputStream(response.body()),
+                    getCharsetName(response.headers().firstValue("Content-Type").orElse("")),
+                    response.uri().toString());
+            return new WebPageLoaderResponse(response.statusCode(), true, jsoupDocument);
+        } catch (IOException e) {
+            log.debug("Не удалось загрузить web-страницу " + webPageLink +
+                    " (" + response.statusCode() + "): " + e.getMessage());
+            return new WebPageLoaderResponse(0, false, null);
+        }
+    }
+
+    /**
+     * Метод проверяет, что тип содержимого ответа может быть разобран как HTML (те же типы, что принимает Jsoup)
+     *
+     * @param contentType значение заголовка Content-Type
+     * @return True, если содержимое текстовое или XML (либо тип не указан)
+     */
+    private boolean isHtmlContentType(String contentType) {
+        String mimeType = contentType.toLowerCase(Locale.ROOT);
+        return mimeType.isEmpty() || mimeType.startsWith("text/") || mimeType.startsWith("application/xml") ||
+                mimeType.matches("^application/\\S+\\+xml.*");
+    }
+
+    private String getCharsetName(String contentType) {
+        Matcher matcher = CHARSET_PATTERN.matcher(contentType);
+        if (!matcher.find()) {
+            return null;
+        }
+        String charsetName = matcher.group(1).trim();
+        try {
+            return Charset.isSupported(charsetName) ? charsetName : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Метод преобразует адрес в URI. Адреса с недопустимыми в URI символами (пробелы, кириллица в пути)
+     * кодируются по частям
+     *
+     * @param webPageLink адрес web-страницы
+     * @return Адрес {@link URI}
+     */
+    private URI toUri(String webPageLink) throws URISyntaxException, IOException {
+        try {
+            return URI.create(webPageLink);
+        } catch (IllegalArgumentException e) {
+            URL url = new URL(webPageLink);
+            return new URI(new URI(url.getProtocol(), url.getUserInfo(), url.getHost(), url.getPort(),
+                    url.getPath(), url.getQuery(), null).toASCIIString());
+        }
+    }
+}
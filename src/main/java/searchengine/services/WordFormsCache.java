@@ -0,0 +1,90 @@
+package searchengine.services;
+
+import searchengine.dto.statistics.CacheStatistics;
+import searchengine.services.helpers.WordForms;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+public class WordFormsCache {
+    private static final int SEGMENT_COUNT = 16;  // Количество независимо блокируемых сегментов кэша
+
+    private final int capacity;
+    private final Map<String, WordForms>[] segments;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public WordFormsCache(int capacity) {
+        this.capacity = Math.max(capacity, 0);
+        int segmentCapacity = (this.capacity + SEGMENT_COUNT - 1) / SEGMENT_COUNT;
+        segments = new Map[SEGMENT_COUNT];
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, WordForms> eldest) {
+                    if (size() > segmentCapacity) {
+                        evictions.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+    }
+
+    /**
+     * Метод возвращает результат морфологического анализа слова из кэша, а при его отсутствии - выполняет анализ
+     * и сохраняет результат в кэше, при переполнении вытесняя давно не использованные слова. Кэш разбит на сегменты,
+     * поэтому потоки индексации и поиска блокируют друг друга, только обращаясь к одному сегменту
+     *
+     * @param word   слово в нижнем регистре
+     * @param loader функция морфологического анализа слова (выполняется вне блокировки)
+     * @return Запись {@link WordForms}
+     */
+    public WordForms get(String word, Function<String, WordForms> loader) {
+        if (capacity == 0) {
+            misses.increment();
+            return loader.apply(word);
+        }
+        Map<String, WordForms> segment = segments[(word.hashCode() & Integer.MAX_VALUE) % SEGMENT_COUNT];
+        WordForms wordForms;
+        synchronized (segment) {
+            wordForms = segment.get(word);
+        }
+        if (wordForms != null) {
+            hits.increment();
+            return wordForms;
+        }
+        misses.increment();
+        wordForms = loader.apply(word);
+        synchronized (segment) {
+            segment.put(word, wordForms);
+        }
+        return wordForms;
+    }
+
+    /**
+     * Метод формирует статистику использования кэша
+     *
+     * @return Объект {@link CacheStatistics}
+     */
+    public CacheStatistics getStatistics() {
+        int size = 0;
+        for (Map<String, WordForms> segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        CacheStatistics statistics = new CacheStatistics();
+        statistics.setSize(size);
+        statistics.setCapacity(capacity);
+        statistics.setHits(hits.sum());
+        statistics.setMisses(misses.sum());
+        statistics.setEvictions(evictions.sum());
+        return statistics;
+    }
+}
@@ -0,0 +1,11 @@
+package searchengine.services.helpers;
+
+import java.util.Map;
+
+public record PageRecord(String path, int code, String content, String title, String text,
+                         Map<String, LemmaOccurrences> lemmaOccurrences) {
+
+    public int tokenCount() {
+        return lemmaOccurrences.values().stream().mapToInt(occurrences -> occurrences.positions().size()).sum();
+    }
+}
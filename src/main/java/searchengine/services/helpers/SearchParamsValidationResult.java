@@ -2,8 +2,10 @@ package searchengine.services.helpers;
 
 import searchengine.model.SiteEntity;
 
+import java.util.List;
 import java.util.Map;
 
 public record SearchParamsValidationResult(boolean result, SiteEntity siteEntity, Map<String, Integer> lemmas,
-                                           String error) {
+                                           Map<String, List<String>> lemmaAlternatives,
+                                           List<Map<String, List<Integer>>> phrases, String error) {
 }
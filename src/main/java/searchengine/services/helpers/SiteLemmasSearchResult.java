@@ -5,7 +5,9 @@ import lombok.Setter;
 import searchengine.model.LemmaEntity;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Setter
 @Getter
@@ -14,11 +16,15 @@ public class SiteLemmasSearchResult {
     private int foundLemmaCount;
     private final List<String> lemmas;
     private final List<LemmaEntity> lemmaEntities;
+    private final List<LemmaEntity> optionalLemmaEntities;
+    private final Map<Integer, List<Integer>> alternativeLemmaIds;
 
     public SiteLemmasSearchResult(long pageCount) {
         this.pageCount = pageCount;
         foundLemmaCount = 0;
         lemmas = new ArrayList<>();
         lemmaEntities = new ArrayList<>();
+        optionalLemmaEntities = new ArrayList<>();
+        alternativeLemmaIds = new HashMap<>();
     }
 }
@@ -0,0 +1,6 @@
+package searchengine.services.helpers;
+
+import java.util.List;
+
+public record WordForms(boolean serviceWord, List<String> normalForms) {
+}
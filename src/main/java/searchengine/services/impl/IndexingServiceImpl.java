@@ -7,6 +7,7 @@ import org.springframework.context.ApplicationContext;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import searchengine.config.BotSettings;
+import searchengine.config.SearchSettings;
 import searchengine.config.Site;
 import searchengine.config.SitesList;
 import searchengine.dto.ResultResponse;
@@ -20,7 +21,12 @@ import searchengine.repositories.PageRepository;
 import searchengine.repositories.SiteRepository;
 import searchengine.services.IndexingService;
 import searchengine.services.LemmaAnalyzerService;
+import searchengine.services.PageWriteService;
+import searchengine.services.PolitenessScheduler;
+import searchengine.services.SiteGenerationService;
 import searchengine.services.SiteIndexerThread;
+import searchengine.services.WebPageFetcher;
+import searchengine.services.index.SearchIndex;
 
 import java.time.Instant;
 import java.util.ArrayList;
@@ -51,7 +57,13 @@ public class IndexingServiceImpl implements IndexingService {
     private final IndexRepository indexRepository;
     private final SitesList sites;
     private final BotSettings botSettings;
+    private final SearchSettings searchSettings;
     private final LemmaAnalyzerService lemmaAnalyzer;
+    private final SearchIndex searchIndex;
+    private final PageWriteService pageWriteService;
+    private final SiteGenerationService siteGenerationService;
+    private final WebPageFetcher webPageFetcher;
+    private final PolitenessScheduler politenessScheduler;
 
     /**
      * Метод проверяет возможность запуска индексации всех сайтов, если запуск возможен - запускает индексацию
@@ -86,10 +98,10 @@ public class IndexingServiceImpl implements IndexingService {
         cancelIndexingProcess = false;
         List<Thread> siteIndexerThreadList = new ArrayList<>();
         for (Site site : sites.getSites()) {
-            SiteEntity siteEntity = cleanUpAndPrepareSite(site);
+            SiteEntity siteEntity = siteGenerationService.prepareGeneration(site);
             SiteIndexerThread siteIndexerThread = new SiteIndexerThread(
-                    siteEntity, siteRepository, pageRepository, lemmaRepository,
-                    indexRepository, botSettings, lemmaAnalyzer, ""
+                    siteEntity, siteRepository, botSettings, searchSettings, lemmaAnalyzer, pageWriteService,
+                    siteGenerationService, webPageFetcher, politenessScheduler, ""
             );
             siteIndexerThreadList.add(siteIndexerThread);
         }
@@ -108,7 +120,8 @@ public class IndexingServiceImpl implements IndexingService {
 
     /**
      * Метод проверяет возможность остановки индексации, при необходимости останавливает ее
-     * и формирует соответствующий ответ
+     * и формирует соответствующий ответ. Если потоки индексации не завершились вовремя, то статус FAILED
+     * получают только индексируемые (не активные) поколения сайтов
      *
      * @return Объект {@link ResultResponse}
      */
@@ -130,8 +143,11 @@ public class IndexingServiceImpl implements IndexingService {
         if (isIndexingInProcess || siteRepository.countAllByStatus(IndexStatusType.INDEXING) > 0) {
             log.info("Принудительно меняем статус индексируемых сайтов на INDEXING_INTERRUPTED_BY_USER");
             isIndexingInProcess = false;
-            siteRepository.updateAllSitesStatus(IndexStatusType.INDEXING, IndexStatusType.FAILED,
+            siteRepository.updateAllSitesStatusByActive(false, IndexStatusType.INDEXING, IndexStatusType.FAILED,
                     Instant.now(), INDEXING_INTERRUPTED_BY_USER);
+            // Активное поколение (индексация отдельной страницы) остается доступным для поиска
+            siteRepository.updateAllSitesStatusByActive(true, IndexStatusType.INDEXING, IndexStatusType.INDEXED,
+                    Instant.now(), "");
         }
         return new ResultResponse(true, null);
     }
@@ -185,8 +201,8 @@ public class IndexingServiceImpl implements IndexingService {
         SiteEntity siteEntity = cleanUpPageAndPrepareSite(site, path);
 
         SiteIndexerThread siteIndexerThread = new SiteIndexerThread(
-                siteEntity, siteRepository, pageRepository, lemmaRepository,
-                indexRepository, botSettings, lemmaAnalyzer, path
+                siteEntity, siteRepository, botSettings, searchSettings, lemmaAnalyzer, pageWriteService,
+                siteGenerationService, webPageFetcher, politenessScheduler, path
         );
         siteIndexerThread.start();
         try {
@@ -233,23 +249,6 @@ public class IndexingServiceImpl implements IndexingService {
         return (IndexingService) context.getBean("indexingService");
     }
 
-    /**
-     * Метод очищает БД от всей информации по сайту и создает для сайта новую запись
-     *
-     * @param site сайт из конфигурации {@link PageEntity}
-     * @return сайт из БД {@link SiteEntity}
-     */
-    private SiteEntity cleanUpAndPrepareSite(Site site) {
-        siteRepository.findByUrl(site.getUrl()).ifPresent(siteEntity -> {
-                    indexRepository.deleteAllBySiteId(siteEntity.getId());
-                    lemmaRepository.deleteAllBySiteId(siteEntity.getId());
-                    pageRepository.deleteAllBySiteId(siteEntity.getId());
-                    siteRepository.delete(siteEntity);
-                }
-        );
-        return insertSite(site);
-    }
-
     /**
      * Метод очищает БД от информации об индексируемой странице (если она есть в БД). Если такого сайта еще нет в БД,
      * то он добавляется
@@ -259,40 +258,30 @@ public class IndexingServiceImpl implements IndexingService {
      * @return сайт из БД {@link SiteEntity}
      */
     private SiteEntity cleanUpPageAndPrepareSite(Site site, String path) {
-        SiteEntity siteEntity = siteRepository.findByUrl(site.getUrl()).orElseGet(() -> insertSite(site));
+        SiteEntity siteEntity = siteRepository.findByUrlAndActiveTrue(site.getUrl())
+                .orElseGet(() -> siteGenerationService.insertSite(site, true));
         siteRepository.updateSiteStatusBySiteId(siteEntity.getId(), IndexStatusType.INDEXING,
                 Instant.now(), "");
         pageRepository.findBySiteAndPath(siteEntity, path).ifPresent(this::deletePage);
         return siteEntity;
     }
 
-    /**
-     * Метод добавляет в БД новый сайт
-     *
-     * @param site сайт {@link Site}
-     * @return Новый объект {@link SiteEntity}
-     */
-    private SiteEntity insertSite(Site site) {
-        SiteEntity siteEntity = new SiteEntity();
-        siteEntity.setStatus(IndexStatusType.INDEXING);
-        siteEntity.setStatusTime(Instant.now());
-        siteEntity.setUrl(site.getUrl());
-        siteEntity.setName(site.getName());
-        return siteRepository.save(siteEntity);
-    }
-
     /**
      * Метод удаляет из БД заданную страницу и соответствующие ей индексы, а также уменьшает
-     * количество соответствующих лемм
+     * количество соответствующих лемм и статистику сайта
      *
      * @param pageEntity страница {@link PageEntity}
      */
     private void deletePage(PageEntity pageEntity) {
         List<IndexEntity> indexEntities = indexRepository.findAllByPage(pageEntity);
         if (!indexEntities.isEmpty()) {
-            lemmaRepository.decrementFrequencyAllByLemmaIdIn(indexEntities.stream()
+            List<Integer> lemmaIds = indexEntities.stream()
                     .map(indexEntity -> indexEntity.getLemma().getId())
-                    .toList());
+                    .toList();
+            int siteId = pageEntity.getSite().getId();
+            searchIndex.removePage(siteId, pageEntity.getId(), pageEntity.getTokenCount(), lemmaIds);
+            lemmaRepository.decrementFrequencyAllByLemmaIdIn(lemmaIds);
+            siteRepository.addSiteStatisticsBySiteId(siteId, -1, -pageEntity.getTokenCount().longValue());
         }
         indexRepository.deleteAllByPageId(pageEntity.getId());
         pageRepository.delete(pageEntity);
@@ -2,10 +2,10 @@ package searchengine.services.impl;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
+import searchengine.config.SearchSettings;
 import searchengine.dto.search.SearchItem;
 import searchengine.dto.search.SearchResponse;
 import searchengine.model.*;
@@ -13,15 +13,43 @@ import searchengine.repositories.IndexRepository;
 import searchengine.repositories.LemmaRepository;
 import searchengine.repositories.PageRepository;
 import searchengine.repositories.SiteRepository;
-import searchengine.services.IndexingService;
+import searchengine.repositories.projections.IndexOffsetsProjection;
+import searchengine.repositories.projections.PageScoreProjection;
+import searchengine.repositories.projections.PageSnippetProjection;
 import searchengine.services.LemmaAnalyzerService;
 import searchengine.services.SearchService;
+import searchengine.services.index.Bm25;
+import searchengine.services.index.CachedSearch;
+import searchengine.services.index.LemmaDictionary;
+import searchengine.services.index.LemmaFilterIndex;
+import searchengine.services.index.PhraseTerm;
+import searchengine.services.index.PositionCodec;
+import searchengine.services.index.PositionalRanker;
+import searchengine.services.index.SearchCacheKey;
+import searchengine.services.index.SearchCursor;
+import searchengine.services.index.SearchDeadline;
+import searchengine.services.index.SearchIndex;
+import searchengine.services.index.SearchResultCache;
+import searchengine.services.index.SuggestIndex;
+import searchengine.services.index.TopPages;
+import searchengine.services.index.TopPagesCollector;
 import searchengine.services.helpers.LemmaSearchResult;
 import searchengine.services.helpers.SearchParamsValidationResult;
 import searchengine.services.helpers.SiteLemmasSearchResult;
 
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @SuppressWarnings("JavadocLinkAsPlainText")
 @Log4j2
@@ -29,24 +57,32 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor(onConstructor = @__(@Autowired))
 public class SearchServiceImpl implements SearchService {
     private static final int MAX_FREQUENCY_PERCENT = 25;  // Максимальный процент встречаемости леммы. Если
-    // встречаемость выше и лемма не одна, то она не учитывается при дальнейшем поиске
+    // встречаемость выше и лемма не одна, то она не отбирает страницы, а лишь учитывается в их релевантности
     private static final int MAX_SNIPPET_LENGTH = 240;  // Максимальный размер snippet/а в символах
+    private static final Pattern PHRASE_PATTERN = Pattern.compile("\"([^\"]+)\"");  // Фраза в кавычках
     private static final String EMPTY_QUERY = "Задан пустой поисковый запрос";
     private static final String INVALID_LIMIT = "Задано некорректное значение параметра limit";
     private static final String INVALID_OFFSET = "Задано некорректное значение параметра offset";
     private static final String NO_LEMMAS_IN_QUERY = "Поисковый запрос не содержит значимые ключевые слова";
     private static final String SITE_NOT_FOUND = "Заданный сайт не найден в базе данных";
-    private static final String INDEXING_IN_PROCESS = "Сайты в процессе индексации";
-    private static final String SITE_INDEXING_IN_PROCESS = "Сайт в процессе индексации";
+    private static final String INVALID_CURSOR = "Задано некорректное значение параметра cursor";
+    private static final String CURSOR_EXPIRED = "Поисковый индекс изменился, повторите поиск с начала";
     private static final String NOT_INDEXED = "Сайты не индексированы";
     private static final String SITE_NOT_INDEXED = "Сайт не индексирован";
 
-    private final IndexingService indexingService;
     private final SiteRepository siteRepository;
     private final PageRepository pageRepository;
     private final LemmaRepository lemmaRepository;
     private final IndexRepository indexRepository;
     private final LemmaAnalyzerService lemmaAnalyzer;
+    private final SearchIndex searchIndex;
+    private final SearchResultCache searchResultCache;
+    private final PositionalRanker positionalRanker;
+    private final SuggestIndex suggestIndex;
+    private final LemmaFilterIndex lemmaFilterIndex;
+    private final SearchSettings searchSettings;
+    @Qualifier("searchExecutor")
+    private final Executor searchExecutor;
 
     /**
      * Метод формирует ответ на поисковый запрос пользователя
@@ -56,31 +92,176 @@ public class SearchServiceImpl implements SearchService {
      *               проиндексированным сайтам); задаётся в формате http://www.site.com (без слэша в конце)
      * @param offset сдвиг от 0 для постраничного вывода результата
      * @param limit  количество результатов, которое необходимо вывести
+     * @param cursor курсор, полученный в предыдущем ответе (nextCursor), для вывода следующей страницы результата
+     *               без повторного отбора предыдущих страниц; если задан, то offset не учитывается
+     * @param timeBudgetMs максимальное время выполнения запроса в миллисекундах (не более заданного в настройках
+     *                     search-settings.time-budget-ms); 0 - по настройкам. По истечении этого времени поиск и
+     *                     формирование snippet/ов прекращаются, а в ответе возвращаются лучшие из уже найденных
+     *                     страниц с признаком incomplete
      * @return Объект {@link SearchResponse}
      */
     @Override
-    public SearchResponse search(String query, String site, Integer offset, Integer limit) {
+    public SearchResponse search(String query, String site, Integer offset, Integer limit, String cursor,
+                                 Integer timeBudgetMs) {
+        SearchDeadline deadline = new SearchDeadline(getTimeBudgetMs(timeBudgetMs));
         SearchParamsValidationResult searchParamsValidationResult = validateSearchParams(query, site, offset, limit);
         if (!searchParamsValidationResult.result()) {
             log.info(searchParamsValidationResult.error());
-            return new SearchResponse(false, null, null, searchParamsValidationResult.error());
+            return new SearchResponse(false, null, null, searchParamsValidationResult.error(), null, null);
         }
+        SiteEntity siteEntity = searchParamsValidationResult.siteEntity();
+        Integer siteId = siteEntity == null ? null : siteEntity.getId();
+        SearchCacheKey cacheKey = new SearchCacheKey(searchParamsValidationResult.lemmas().keySet().stream()
+                .sorted().toList(), searchParamsValidationResult.lemmaAlternatives(),
+                searchParamsValidationResult.phrases(), siteId);
+        long generation = searchIndex.getGeneration(siteId);
+
+        SearchCursor after = null;
+        if (!cursor.isEmpty()) {
+            after = SearchCursor.decode(cursor);
+            String error = after == null || after.queryHash() != cacheKey.hashCode() ? INVALID_CURSOR :
+                    after.generation() != generation ? CURSOR_EXPIRED : null;
+            if (error != null) {
+                log.info(error);
+                return new SearchResponse(false, null, null, error, null, null);
+            }
+        }
+        CachedSearch cachedSearch = after == null ?
+                findTopPages(searchParamsValidationResult, cacheKey, generation,
+                        (int) Math.min((long) offset + limit, Integer.MAX_VALUE), deadline) :
+                findTopPagesAfter(searchParamsValidationResult, cacheKey, generation, after, limit, deadline);
+        TopPages topPages = cachedSearch.topPages();
+        boolean searchIncomplete = deadline.wasExpired();
+        if (topPages.totalCount() == 0) {
+            return new SearchResponse(true, 0, Collections.emptyList(), null, null,
+                    searchIncomplete ? true : null);
+        }
+        int from = after == null ? offset : 0;
+        int to = (int) Math.min(topPages.size(), (long) from + limit);
+        List<Map.Entry<Integer, Double>> pageRelRanks = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            pageRelRanks.add(Map.entry(topPages.pageIds()[i], topPages.scores()[i]));
+        }
+        // Курсор по неполному результату не выдается: страницы, не проверенные до истечения срока, были бы пропущены
+        String nextCursor = null;
+        long position = (after == null ? offset : after.position()) + (long) pageRelRanks.size();
+        if (!searchIncomplete && !pageRelRanks.isEmpty() && position < topPages.totalCount()) {
+            nextCursor = new SearchCursor(cacheKey.hashCode(), generation, (int) position,
+                    topPages.scores()[to - 1], topPages.pageIds()[to - 1]).encode();
+        }
+        List<SearchItem> data = getData(pageRelRanks, cachedSearch.siteLemmas(), deadline);
+        return new SearchResponse(true, topPages.totalCount(), data, null, nextCursor,
+                deadline.wasExpired() ? true : null);
+    }
+
+    /**
+     * Метод определяет максимальное время выполнения запроса: заданное в запросе время не может превышать
+     * заданного в настройках (если оно ограничено)
+     *
+     * @param timeBudgetMs заданное в запросе время в миллисекундах (0 либо отрицательное - не задано)
+     * @return Время в миллисекундах (0 - без ограничения)
+     */
+    private long getTimeBudgetMs(Integer timeBudgetMs) {
+        long settingsBudgetMs = Math.max(searchSettings.getTimeBudgetMs(), 0);
+        if (timeBudgetMs == null || timeBudgetMs <= 0) {
+            return settingsBudgetMs;
+        }
+        return settingsBudgetMs == 0 ? timeBudgetMs : Math.min(timeBudgetMs, settingsBudgetMs);
+    }
+
+    /**
+     * Метод ищет topCount наиболее релевантных страниц для заданных лемм. Результат берется из кэша
+     * {@link SearchResultCache}, если там имеется актуальный (для текущего поколения индекса) и достаточно полный
+     * результат, иначе - выполняется поиск, результат которого сохраняется в кэше
+     *
+     * @param searchParamsValidationResult результат проверки поисковых параметров
+     *                                     (см. {@link #validateSearchParams(String, String, Integer, Integer)})
+     * @param cacheKey                     ключ кэша результатов поиска
+     * @param generation                   текущее поколение индекса
+     * @param topCount                     количество отбираемых страниц (offset + limit)
+     * @param deadline                     срок выполнения запроса {@link SearchDeadline} (неполный результат
+     *                                     поиска, прерванного по истечении срока, в кэше не сохраняется)
+     * @return Запись {@link CachedSearch}
+     */
+    private CachedSearch findTopPages(SearchParamsValidationResult searchParamsValidationResult,
+                                      SearchCacheKey cacheKey, long generation, int topCount,
+                                      SearchDeadline deadline) {
+        CachedSearch cachedSearch = searchResultCache.get(cacheKey, generation, topCount);
+        if (cachedSearch != null) {
+            return cachedSearch;
+        }
+        cachedSearch = searchTopPages(searchParamsValidationResult, generation, topCount, null, deadline);
+        if (!deadline.wasExpired()) {
+            searchResultCache.put(cacheKey, cachedSearch);
+        }
+        return cachedSearch;
+    }
+
+    /**
+     * Метод ищет limit наиболее релевантных страниц, следующих после позиции курсора. Если в кэше
+     * {@link SearchResultCache} имеется результат, содержащий эти страницы, то они берутся из него, иначе - при
+     * поиске отбираются только страницы после позиции курсора (результат такого поиска в кэше не сохраняется)
+     *
+     * @param searchParamsValidationResult результат проверки поисковых параметров
+     *                                     (см. {@link #validateSearchParams(String, String, Integer, Integer)})
+     * @param cacheKey                     ключ кэша результатов поиска
+     * @param generation                   текущее поколение индекса (совпадает с поколением курсора)
+     * @param after                        курсор {@link SearchCursor}
+     * @param limit                        количество отбираемых страниц
+     * @param deadline                     срок выполнения запроса {@link SearchDeadline}
+     * @return Запись {@link CachedSearch}, лучшие страницы которой начинаются сразу после позиции курсора
+     */
+    private CachedSearch findTopPagesAfter(SearchParamsValidationResult searchParamsValidationResult,
+                                           SearchCacheKey cacheKey, long generation, SearchCursor after, int limit,
+                                           SearchDeadline deadline) {
+        int position = after.position();
+        CachedSearch cachedSearch = searchResultCache.get(cacheKey, generation,
+                (int) Math.min((long) position + limit, Integer.MAX_VALUE));
+        if (cachedSearch != null) {
+            TopPages topPages = cachedSearch.topPages();
+            if (position <= topPages.size() && topPages.pageIds()[position - 1] == after.pageId()) {
+                TopPages pagesAfter = new TopPages(
+                        Arrays.copyOfRange(topPages.pageIds(), position, topPages.size()),
+                        Arrays.copyOfRange(topPages.scores(), position, topPages.size()),
+                        topPages.size() - position, topPages.totalCount());
+                return new CachedSearch(pagesAfter, cachedSearch.siteLemmas(), generation);
+            }
+        }
+        return searchTopPages(searchParamsValidationResult, generation, limit, after, deadline);
+    }
+
+    /**
+     * Метод выполняет поиск topCount наиболее релевантных страниц для заданных лемм (и фраз)
+     *
+     * @param searchParamsValidationResult результат проверки поисковых параметров
+     *                                     (см. {@link #validateSearchParams(String, String, Integer, Integer)})
+     * @param generation                   текущее поколение индекса
+     * @param topCount                     количество отбираемых страниц
+     * @param after                        курсор {@link SearchCursor}, после позиции которого отбираются
+     *                                     страницы, либо null
+     * @param deadline                     срок выполнения запроса {@link SearchDeadline}
+     * @return Запись {@link CachedSearch}
+     */
+    private CachedSearch searchTopPages(SearchParamsValidationResult searchParamsValidationResult, long generation,
+                                        int topCount, SearchCursor after, SearchDeadline deadline) {
+        List<Map<String, List<Integer>>> phrases = searchParamsValidationResult.phrases();
         Map<SiteEntity, SiteLemmasSearchResult> lemmasSearchMap = searchLemmaEntities(
-                searchParamsValidationResult.siteEntity(),
-                searchParamsValidationResult.lemmas().keySet()
-        );
-        if (lemmasSearchMap.isEmpty()) {
-            return new SearchResponse(true, 0, Collections.emptyList(), null);
-        }
-        List<Map.Entry<PageEntity, Double>> pageRelRanks = searchPages(lemmasSearchMap);
-        List<SearchItem> data = getData(pageRelRanks.stream()
-                .skip(offset).limit(limit).toList(), lemmasSearchMap);
-        return new SearchResponse(true, pageRelRanks.size(), data, null);
+                searchParamsValidationResult.siteEntity(), searchParamsValidationResult.lemmas().keySet(),
+                searchParamsValidationResult.lemmaAlternatives(),
+                phrases.stream().flatMap(phrase -> phrase.keySet().stream()).collect(Collectors.toSet()));
+        TopPages topPages = lemmasSearchMap.isEmpty() ? new TopPagesCollector(0).toTopPages() :
+                searchPages(lemmasSearchMap, phrases, topCount, after, deadline);
+        Map<Integer, List<String>> siteLemmas = new HashMap<>();
+        lemmasSearchMap.forEach((site, siteLemmasSearchResult) ->
+                siteLemmas.put(site.getId(), siteLemmasSearchResult.getLemmas()));
+        return new CachedSearch(topPages, siteLemmas, generation);
     }
 
     /**
      * Метод проверяет заданные пользователем поисковые параметры на корректность и применимость и разбивает
-     * поисковый запрос на леммы (исключая междометия, союзы, предлоги и частицы)
+     * поисковый запрос на леммы (исключая междометия, союзы, предлоги и частицы). Если включен позиционный индекс,
+     * то из запроса также выделяются фразы в кавычках. Если включено исправление опечаток, то слова, отсутствующие
+     * в словаре лемм, заменяются ближайшими по написанию леммами
      *
      * @param query  поисковый запрос
      * @param site   сайт, по которому осуществляется поиск (если не задан, то поиск происходит по всем
@@ -91,178 +272,446 @@ public class SearchServiceImpl implements SearchService {
      */
     private SearchParamsValidationResult validateSearchParams(String query, String site, Integer offset, Integer limit) {
         if (query.isEmpty()) {
-            return new SearchParamsValidationResult(false, null, null, EMPTY_QUERY);
+            return new SearchParamsValidationResult(false, null, null, null, null, EMPTY_QUERY);
         }
 
         if (limit < 1) {
-            return new SearchParamsValidationResult(false, null, null, INVALID_LIMIT);
+            return new SearchParamsValidationResult(false, null, null, null, null, INVALID_LIMIT);
         }
 
         if (offset < 0) {
-            return new SearchParamsValidationResult(false, null, null, INVALID_OFFSET);
+            return new SearchParamsValidationResult(false, null, null, null, null, INVALID_OFFSET);
         }
 
-        Map<String, Integer> lemmas = new LemmaAnalyzerService().getLemmas(query, false);
-        if (lemmas.isEmpty()) {
-            return new SearchParamsValidationResult(false, null, null, NO_LEMMAS_IN_QUERY);
+        Map<String, Integer> lemmas = lemmaAnalyzer.getLemmas(query, false);
+        if (lemmas.isEmpty() && !searchSettings.getFuzzySearch()) {
+            return new SearchParamsValidationResult(false, null, null, null, null, NO_LEMMAS_IN_QUERY);
         }
 
+        List<Map<String, List<Integer>>> phrases = searchSettings.getPositionalIndex() && searchIndex.isInMemory() ?
+                parsePhrases(query) : Collections.emptyList();
+
         SiteEntity siteEntity = null;
         if (!site.isEmpty()) {
-            Optional<SiteEntity> optionalSiteEntity = siteRepository.findByUrl(site);
+            Optional<SiteEntity> optionalSiteEntity = siteRepository.findByUrlAndActiveTrue(site);
             if (optionalSiteEntity.isEmpty()) {
-                return new SearchParamsValidationResult(false, null, null, SITE_NOT_FOUND);
+                return new SearchParamsValidationResult(false, null, null, null, null, SITE_NOT_FOUND);
             }
             siteEntity = optionalSiteEntity.get();
         }
 
-        if (indexingService.isAnySiteAlreadyIndexing()) {
-            if (site.isEmpty()) {
-                return new SearchParamsValidationResult(false, null, null, INDEXING_IN_PROCESS);
-            }
-            if (siteEntity.getStatus() == IndexStatusType.INDEXING) {
-                return new SearchParamsValidationResult(false, null, null, SITE_INDEXING_IN_PROCESS);
-            }
-        }
-
         if (site.isEmpty()) {
-            if (lemmaRepository.count() == 0) {
-                return new SearchParamsValidationResult(false, null, null, NOT_INDEXED);
+            if (lemmaRepository.countBySiteActiveTrue() == 0) {
+                return new SearchParamsValidationResult(false, null, null, null, null, NOT_INDEXED);
             }
         } else {
             if (lemmaRepository.countBySite(siteEntity) == 0) {
-                return new SearchParamsValidationResult(false, null, null, SITE_NOT_INDEXED);
+                return new SearchParamsValidationResult(false, null, null, null, null, SITE_NOT_INDEXED);
             }
         }
 
-        return new SearchParamsValidationResult(true, siteEntity, lemmas, "");
+        Map<String, List<String>> lemmaAlternatives = Collections.emptyMap();
+        if (searchSettings.getFuzzySearch()) {
+            lemmaAlternatives = correctMisspelledWords(query, lemmas, phrases,
+                    siteEntity == null ? null : siteEntity.getId());
+            if (lemmas.isEmpty()) {
+                return new SearchParamsValidationResult(false, null, null, null, null, NO_LEMMAS_IN_QUERY);
+            }
+        }
+
+        return new SearchParamsValidationResult(true, siteEntity, lemmas, lemmaAlternatives, phrases, "");
+    }
+
+    /**
+     * Метод исправляет опечатки в поисковом запросе. Значимое слово запроса, ни одна нормальная форма которого
+     * не найдена в словаре лемм сайта (всех сайтов) {@link SuggestIndex}, либо слово, которое не удалось
+     * проанализировать, заменяется ближайшей по расстоянию Левенштейна леммой словаря (см.
+     * {@link LemmaDictionary#findClosest(String, int)}); из нескольких кандидатов выбирается самый частый. Остальные
+     * леммы словаря в пределах того же расстояния (не более fuzzy-max-candidates лемм вместе с ближайшей, см.
+     * {@link LemmaDictionary#findWithin(String, int, int)}) становятся альтернативами ближайшей леммы: страница
+     * подходит под исправленное слово, если на ней есть любая из этих лемм. Допустимое количество исправлений зависит
+     * от длины слова (fuzzy-min-one-edit-length, fuzzy-min-two-edits-length) и ограничено fuzzy-max-edits. Если
+     * подходящей леммы нет, то слово остается без изменений. Слова фраз в кавычках заменяются только ближайшей
+     * леммой, а альтернативы не назначаются лемме, которая получена и из правильно написанного слова запроса
+     *
+     * @param query   поисковый запрос
+     * @param lemmas  словарь Лемма - Количество, полученный из запроса (изменяется)
+     * @param phrases список фраз (словарей Лемма - Позиции леммы внутри фразы), леммы которых заменяются так же
+     * @param siteId  идентификатор сайта, либо null, если поиск по всем сайтам
+     * @return Словарь Лемма запроса - Альтернативные леммы
+     */
+    private Map<String, List<String>> correctMisspelledWords(String query, Map<String, Integer> lemmas,
+                                                             List<Map<String, List<Integer>>> phrases,
+                                                             Integer siteId) {
+        LemmaDictionary dictionary = suggestIndex.getDictionary(siteId);
+        Map<String, List<String>> lemmaAlternatives = new HashMap<>();
+        Set<String> knownLemmas = new HashSet<>();
+        lemmaAnalyzer.getWordNormalForms(query).forEach((word, normalForms) -> {
+            if (normalForms.stream().anyMatch(dictionary::contains)) {
+                knownLemmas.addAll(normalForms);
+                return;
+            }
+            int best = -1;
+            Set<Integer> candidates = new LinkedHashSet<>();
+            for (String source : normalForms.isEmpty() ? List.of(word.replace("ё", "е")) : normalForms) {
+                int maxEdits = Math.min(source.length() < searchSettings.getFuzzyMinOneEditLength() ? 0 :
+                        source.length() < searchSettings.getFuzzyMinTwoEditsLength() ? 1 : 2,
+                        searchSettings.getFuzzyMaxEdits());
+                int candidate = dictionary.findClosest(source, maxEdits);
+                if (candidate >= 0 && (best < 0 || dictionary.frequency(candidate) > dictionary.frequency(best))) {
+                    best = candidate;
+                }
+                Arrays.stream(dictionary.findWithin(source, maxEdits, searchSettings.getFuzzyMaxCandidates()))
+                        .forEach(candidates::add);
+            }
+            if (best < 0) {
+                return;
+            }
+            String correction = dictionary.lemma(best);
+            boolean inPhrase = phrases.stream().anyMatch(phrase -> normalForms.stream().anyMatch(phrase::containsKey));
+            candidates.remove(best);
+            List<String> alternatives = inPhrase ? Collections.emptyList() : candidates.stream()
+                    .sorted(Comparator.comparingInt(dictionary::frequency).reversed())
+                    .limit(Math.max(searchSettings.getFuzzyMaxCandidates() - 1, 0))
+                    .map(dictionary::lemma)
+                    .toList();
+            log.debug("Слово запроса \"" + word + "\" заменено леммой \"" + correction + "\"" +
+                    (alternatives.isEmpty() ? "" : " (альтернативы: " + String.join(", ", alternatives) + ")"));
+            if (!alternatives.isEmpty()) {
+                lemmaAlternatives.merge(correction, alternatives, (oldAlternatives, newAlternatives) ->
+                        Stream.concat(oldAlternatives.stream(), newAlternatives.stream()).distinct().toList());
+            }
+            int count = normalForms.stream().map(lemmas::remove).filter(Objects::nonNull)
+                    .mapToInt(Integer::intValue).sum();
+            lemmas.merge(correction, Math.max(count, 1), Integer::sum);
+            for (Map<String, List<Integer>> phrase : phrases) {
+                for (String normalForm : normalForms) {
+                    List<Integer> positions = phrase.remove(normalForm);
+                    if (positions != null) {
+                        Set<Integer> merged = new TreeSet<>(phrase.getOrDefault(correction,
+                                Collections.emptyList()));
+                        merged.addAll(positions);
+                        phrase.put(correction, new ArrayList<>(merged));
+                    }
+                }
+            }
+        });
+        lemmaAlternatives.keySet().removeAll(knownLemmas);
+        return lemmaAlternatives;
+    }
+
+    /**
+     * Метод выделяет из поискового запроса фразы в кавычках и разбивает каждую фразу на леммы с их позициями
+     * внутри фразы (позиции незначимых слов пропускаются, но учитываются). Фразы из одного слова не учитываются
+     *
+     * @param query поисковый запрос
+     * @return Список фраз (словарей Лемма - Позиции леммы внутри фразы)
+     */
+    private List<Map<String, List<Integer>>> parsePhrases(String query) {
+        List<Map<String, List<Integer>>> phrases = new ArrayList<>();
+        Matcher matcher = PHRASE_PATTERN.matcher(query);
+        while (matcher.find()) {
+            Map<String, List<Integer>> phrase = lemmaAnalyzer.getLemmaPositions(matcher.group(1), false);
+            if (phrase.values().stream().mapToInt(List::size).sum() > 1 && !phrases.contains(phrase)) {
+                phrases.add(phrase);
+            }
+        }
+        return phrases;
     }
 
     /**
      * Метод ищет леммы на заданном пользователем сайте (либо на каждом проиндексированном сайте, если сайт не указан).
      * Леммы, встречающиеся чаще заданного в константе MAX_FREQUENCY_PERCENT процента от общего количества страниц на
-     * сайте, исключаются из критерия поиска (исключение составляет случай, когда эта лемма единственная)
+     * сайте, исключаются из критерия поиска и становятся необязательными, влияя только на релевантность страниц
+     * (исключение составляют случай, когда эта лемма единственная, и леммы фраз). Сайты, на которых по фильтрам
+     * лемм {@link LemmaFilterIndex} заведомо нет хотя бы одной из лемм, отбрасываются до обращения к БД; если таких
+     * сайтов нет, то запросы к БД не выполняются вовсе. Вместе с леммами ищутся их альтернативы (леммы, которыми
+     * исправлено слово с опечаткой): лемма считается найденной на сайте, если на нем найдена она сама либо хотя бы
+     * одна из ее альтернатив, а по фильтрам лемм проверяются только леммы без альтернатив
      *
-     * @param siteEntity объект {@link SiteEntity} с заданным пользователем сайтом для поиска,
-     *                   либо null, если поиск по всем сайтам
-     * @param lemmas     список искомых лемм
+     * @param siteEntity        объект {@link SiteEntity} с заданным пользователем сайтом для поиска,
+     *                          либо null, если поиск по всем сайтам
+     * @param lemmas            список искомых лемм
+     * @param lemmaAlternatives словарь Лемма - Альтернативные леммы
+     * @param phraseLemmas      леммы, входящие в искомые фразы
      * @return Словарь Сайт {@link SiteEntity} - Результат поиска лемм {@link SiteLemmasSearchResult}
      */
-    private Map<SiteEntity, SiteLemmasSearchResult> searchLemmaEntities(SiteEntity siteEntity, Set<String> lemmas) {
-        Map<SiteEntity, SiteLemmasSearchResult> lemmasSearchMap = new HashMap<>();
+    private Map<SiteEntity, SiteLemmasSearchResult> searchLemmaEntities(SiteEntity siteEntity, Set<String> lemmas,
+                                                                        Map<String, List<String>> lemmaAlternatives,
+                                                                        Set<String> phraseLemmas) {
+        Map<String, String> queryLemmas = new HashMap<>();  // Искомая лемма - Лемма запроса, вместо которой она ищется
+        lemmas.forEach(lemma -> queryLemmas.put(lemma, lemma));
+        lemmaAlternatives.forEach((lemma, alternatives) ->
+                alternatives.forEach(alternative -> queryLemmas.putIfAbsent(alternative, lemma)));
+        Set<String> filterLemmas = lemmas.stream().filter(lemma -> !lemmaAlternatives.containsKey(lemma))
+                .collect(Collectors.toSet());
 
-        List<LemmaEntity> foundLemmas = siteEntity == null ?
-                lemmaRepository.findAllByLemmaInAndFrequencyGreaterThan(lemmas, 0) :
-                lemmaRepository.findAllBySiteAndLemmaInAndFrequencyGreaterThan(siteEntity, lemmas, 0);
-
-        foundLemmas.sort(Comparator.comparingInt(LemmaEntity::getFrequency));
+        List<LemmaEntity> foundLemmas;
+        if (siteEntity == null) {
+            List<Integer> siteIds = lemmaFilterIndex.findSites(filterLemmas);
+            foundLemmas = siteIds.isEmpty() ? new ArrayList<>() :
+                    lemmaRepository.findAllBySiteIdInAndLemmaInAndFrequencyGreaterThanAndSiteActiveTrue(siteIds,
+                            queryLemmas.keySet(), 0);
+        } else {
+            foundLemmas = lemmaFilterIndex.mightContainAll(siteEntity.getId(), filterLemmas) ?
+                    lemmaRepository.findAllBySiteAndLemmaInAndFrequencyGreaterThan(siteEntity, queryLemmas.keySet(),
+                            0) :
+                    new ArrayList<>();
+        }
 
+        Map<SiteEntity, Map<String, List<LemmaEntity>>> siteQueryLemmas = new HashMap<>();
         for (LemmaEntity lemma : foundLemmas) {
-            if (!lemmasSearchMap.containsKey(lemma.getSite())) {
-                lemmasSearchMap.put(lemma.getSite(),
-                        new SiteLemmasSearchResult(pageRepository.countBySite(lemma.getSite())));
-            }
-            SiteLemmasSearchResult siteLemmasSearchResult = lemmasSearchMap.get(lemma.getSite());
-            siteLemmasSearchResult.setFoundLemmaCount(siteLemmasSearchResult.getFoundLemmaCount() + 1);
-            if (siteLemmasSearchResult.getFoundLemmaCount() > 1 && lemma.getFrequency() * 100 /
-                    siteLemmasSearchResult.getPageCount() > MAX_FREQUENCY_PERCENT) {
-                log.debug("Слишком часто встречаемое на сайте " + lemma.getSite().getName() +
-                        " слово: " + lemma.getLemma());
-                continue;
-            }
-            siteLemmasSearchResult.getLemmas().add(lemma.getLemma());
-            siteLemmasSearchResult.getLemmaEntities().add(lemma);
+            siteQueryLemmas.computeIfAbsent(lemma.getSite(), site -> new HashMap<>())
+                    .computeIfAbsent(queryLemmas.getOrDefault(lemma.getLemma(), lemma.getLemma()),
+                            queryLemma -> new ArrayList<>())
+                    .add(lemma);
         }
-        // Если на сайте не найдены все заданные леммы, то поиск по нему прекращаем
-        lemmasSearchMap.entrySet().removeIf(entry -> entry.getValue().getFoundLemmaCount() < lemmas.size());
+
+        Map<SiteEntity, SiteLemmasSearchResult> lemmasSearchMap = new HashMap<>();
+        siteQueryLemmas.forEach((site, foundQueryLemmas) -> {
+            // Если на сайте не найдены все заданные леммы, то поиск по нему прекращаем
+            if (foundQueryLemmas.size() < lemmas.size()) {
+                return;
+            }
+            SiteLemmasSearchResult siteLemmasSearchResult =
+                    new SiteLemmasSearchResult(pageRepository.countBySite(site));
+            foundQueryLemmas.entrySet().stream()
+                    .sorted(Comparator.comparingLong(entry -> getTotalFrequency(entry.getValue())))
+                    .forEach(entry -> addQueryLemma(siteLemmasSearchResult, entry.getKey(), entry.getValue(),
+                            phraseLemmas));
+            lemmasSearchMap.put(site, siteLemmasSearchResult);
+        });
         return lemmasSearchMap;
     }
 
     /**
-     * Метод ищет страницы, соответствующие комбинации ранее найденных лемм, и сортирует их по убыванию релевантности
+     * Метод добавляет в результат поиска лемм сайта лемму запроса (в порядке возрастания частоты встречаемости).
+     * Лемма, встречающаяся чаще заданного в константе MAX_FREQUENCY_PERCENT процента от общего количества страниц
+     * на сайте, становится необязательной (вместе с альтернативами), если она не первая и не входит в искомые фразы.
+     * Иначе обязательной становится сама лемма запроса (либо, если ее на сайте нет, самая частая из ее
+     * альтернатив), а остальные найденные леммы - ее альтернативами
+     *
+     * @param siteLemmasSearchResult результат поиска лемм сайта {@link SiteLemmasSearchResult}
+     * @param queryLemma             лемма запроса
+     * @param lemmaEntities          найденные на сайте лемма запроса и ее альтернативы {@link LemmaEntity}
+     * @param phraseLemmas           леммы, входящие в искомые фразы
+     */
+    private void addQueryLemma(SiteLemmasSearchResult siteLemmasSearchResult, String queryLemma,
+                               List<LemmaEntity> lemmaEntities, Set<String> phraseLemmas) {
+        siteLemmasSearchResult.setFoundLemmaCount(siteLemmasSearchResult.getFoundLemmaCount() + 1);
+        if (siteLemmasSearchResult.getFoundLemmaCount() > 1 && !phraseLemmas.contains(queryLemma) &&
+                getTotalFrequency(lemmaEntities) * 100 /
+                siteLemmasSearchResult.getPageCount() > MAX_FREQUENCY_PERCENT) {
+            log.debug("Слишком часто встречаемое на сайте " + lemmaEntities.get(0).getSite().getName() +
+                    " слово: " + queryLemma);
+            siteLemmasSearchResult.getOptionalLemmaEntities().addAll(lemmaEntities);
+            return;
+        }
+        LemmaEntity lemmaEntity = lemmaEntities.stream()
+                .filter(entity -> entity.getLemma().equals(queryLemma))
+                .findFirst()
+                .orElseGet(() -> Collections.max(lemmaEntities, Comparator.comparingInt(LemmaEntity::getFrequency)));
+        siteLemmasSearchResult.getLemmaEntities().add(lemmaEntity);
+        lemmaEntities.forEach(entity -> siteLemmasSearchResult.getLemmas().add(entity.getLemma()));
+        List<Integer> alternativeLemmaIds = lemmaEntities.stream()
+                .filter(entity -> entity != lemmaEntity)
+                .map(LemmaEntity::getId)
+                .toList();
+        if (!alternativeLemmaIds.isEmpty()) {
+            siteLemmasSearchResult.getAlternativeLemmaIds().put(lemmaEntity.getId(), alternativeLemmaIds);
+        }
+    }
+
+    private long getTotalFrequency(List<LemmaEntity> lemmaEntities) {
+        return lemmaEntities.stream().mapToLong(LemmaEntity::getFrequency).sum();
+    }
+
+    /**
+     * Метод ищет страницы, соответствующие комбинации ранее найденных лемм, и отбирает из них topCount наиболее
+     * релевантных (в порядке убывания релевантности). Общее количество найденных страниц подсчитывается точно.
+     * Поиск по нескольким сайтам выполняется параллельно в пуле searchExecutor, после чего лучшие страницы каждого
+     * сайта объединяются. При ошибке поиска по одному из сайтов поиск по остальным сайтам прекращается
      *
      * @param lemmasSearchMap словарь Сайт {@link SiteEntity} - Результат поиска лемм {@link SiteLemmasSearchResult}.
      *                        Леммы уже отсортированы в порядке возрастания частоты встречаемости
-     * @return Список пар ключ-значение Страница {@link PageEntity} - Относительная релевантность
+     * @param phrases         список искомых фраз (словарей Лемма - Позиции леммы внутри фразы)
+     * @param topCount        количество отбираемых страниц (offset + limit)
+     * @param after           курсор {@link SearchCursor}, после позиции которого отбираются страницы, либо null
+     * @param deadline        срок выполнения запроса {@link SearchDeadline}; по его истечении поиск по каждому
+     *                        сайту прекращается и объединяются лучшие из уже найденных страниц
+     * @return Объект {@link TopPages} с релевантностью BM25 отобранных страниц
      */
-    private List<Map.Entry<PageEntity, Double>> searchPages(Map<SiteEntity, SiteLemmasSearchResult> lemmasSearchMap) {
-        Map<PageEntity, Double> pageRanks = new HashMap<>();
-        for (Map.Entry<SiteEntity, SiteLemmasSearchResult> lemmasSearchResultEntry : lemmasSearchMap.entrySet()) {
-            List<IndexEntity> indexEntities = searchSiteIndexes(lemmasSearchResultEntry.getValue().getLemmaEntities());
-            for (IndexEntity indexEntity : indexEntities) {
-                pageRanks.put(indexEntity.getPage(),
-                        pageRanks.getOrDefault(indexEntity.getPage(), 0d) + indexEntity.getRank());
+    private TopPages searchPages(Map<SiteEntity, SiteLemmasSearchResult> lemmasSearchMap,
+                                 List<Map<String, List<Integer>>> phrases, int topCount, SearchCursor after,
+                                 SearchDeadline deadline) {
+        TopPagesCollector collector = new TopPagesCollector(topCount, after);
+        if (lemmasSearchMap.size() == 1) {
+            searchSiteIndexes(lemmasSearchMap.values().iterator().next(), phrases, topCount, after, collector,
+                    deadline::isExpired);
+        } else {
+            AtomicBoolean cancelled = new AtomicBoolean();
+            BooleanSupplier stopped = () -> cancelled.get() || deadline.isExpired();
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            List<CompletableFuture<TopPages>> futures = new ArrayList<>();
+            for (SiteLemmasSearchResult siteLemmasSearchResult : lemmasSearchMap.values()) {
+                futures.add(CompletableFuture.supplyAsync(() -> {
+                    TopPagesCollector siteCollector = new TopPagesCollector(topCount, after);
+                    searchSiteIndexes(siteLemmasSearchResult, phrases, topCount, after, siteCollector, stopped);
+                    return siteCollector.toTopPages();
+                }, searchExecutor));
+            }
+            for (CompletableFuture<TopPages> future : futures) {
+                future.whenComplete((siteTopPages, ex) -> {
+                    if (ex != null && failure.compareAndSet(null, ex)) {
+                        cancelled.set(true);
+                        futures.forEach(otherFuture -> otherFuture.cancel(true));
+                    }
+                });
+            }
+            try {
+                CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+            } catch (CompletionException | CancellationException ex) {
+                cancelled.set(true);
+                Throwable cause = failure.compareAndSet(null, ex) ? ex : failure.get();
+                if (cause instanceof CompletionException && cause.getCause() != null) {
+                    cause = cause.getCause();
+                }
+                throw cause instanceof RuntimeException runtimeException ? runtimeException :
+                        new RuntimeException(cause);
             }
+            futures.forEach(future -> collector.merge(future.join()));
         }
-        Double maxRank = pageRanks.isEmpty() ? 1d : pageRanks.values().stream().max(Double::compareTo).get();
-        for (Map.Entry<PageEntity, Double> pageEntityDoubleEntry : pageRanks.entrySet()) {
-            pageEntityDoubleEntry.setValue(pageEntityDoubleEntry.getValue() / maxRank);
+        return collector.toTopPages();
+    }
+
+    /**
+     * Метод ищет в поисковом индексе {@link SearchIndex} страницы заданного сайта, на которых имеется вся комбинация
+     * искомых лемм, и передает их вместе с релевантностью BM25 в коллектор лучших страниц. Необязательные леммы
+     * учитываются только в релевантности, причем страницы, которые заведомо не попадут в число лучших, на них
+     * не проверяются. Если включен позиционный индекс, то страницы дополнительно проверяются на наличие фраз и
+     * ранжируются с учетом близости лемм (см. {@link PositionalRanker}). В режиме поиска запросами к БД поиск
+     * выполняется методом {@link #searchSiteDatabase(List, int, SearchCursor, TopPagesCollector, BooleanSupplier)}
+     *
+     * @param siteLemmasSearchResult результат поиска лемм сайта {@link SiteLemmasSearchResult}
+     * @param phrases                список искомых фраз (словарей Лемма - Позиции леммы внутри фразы)
+     * @param topCount               количество отбираемых страниц (offset + limit)
+     * @param after                  курсор {@link SearchCursor}, после позиции которого отбираются страницы,
+     *                               либо null
+     * @param collector              коллектор лучших страниц {@link TopPagesCollector}
+     * @param stopped                признак прекращения поиска (отмена при ошибке поиска по другому сайту либо
+     *                               истечение срока выполнения запроса)
+     */
+    private void searchSiteIndexes(SiteLemmasSearchResult siteLemmasSearchResult,
+                                   List<Map<String, List<Integer>>> phrases, int topCount, SearchCursor after,
+                                   TopPagesCollector collector, BooleanSupplier stopped) {
+        List<LemmaEntity> lemmaEntities = siteLemmasSearchResult.getLemmaEntities();
+        if (!searchIndex.isInMemory()) {
+            searchSiteDatabase(lemmaEntities, topCount, after, collector, stopped);
+            return;
         }
-        return pageRanks.entrySet().stream()
-                .sorted((o1, o2) -> {
-                    int cmp = Double.compare(o2.getValue(), o1.getValue());
-                    if (cmp == 0) {
-                        return Double.compare(o1.getKey().getId(), o2.getKey().getId());
-                    }
-                    return cmp;
-                }).toList();
+        List<Integer> lemmaIds = lemmaEntities.stream().map(LemmaEntity::getId).toList();
+        List<Integer> optionalLemmaIds = siteLemmasSearchResult.getOptionalLemmaEntities().stream()
+                .map(LemmaEntity::getId).toList();
+        Map<Integer, List<Integer>> alternativeLemmaIds = siteLemmasSearchResult.getAlternativeLemmaIds();
+        if (!searchSettings.getPositionalIndex() || (phrases.isEmpty() && lemmaIds.size() < 2)) {
+            searchIndex.findPages(lemmaIds, alternativeLemmaIds, optionalLemmaIds, collector::threshold,
+                    (pageId, score) -> {
+                        collector.collect(pageId, score);
+                        return !stopped.getAsBoolean();
+                    });
+            return;
+        }
+        Map<String, Integer> siteLemmaIds = lemmaEntities.stream()
+                .collect(Collectors.toMap(LemmaEntity::getLemma, LemmaEntity::getId));
+        List<List<PhraseTerm>> phraseTerms = phrases.stream()
+                .map(phrase -> phrase.entrySet().stream()
+                        .flatMap(entry -> entry.getValue().stream()
+                                .map(offset -> new PhraseTerm(siteLemmaIds.get(entry.getKey()), offset)))
+                        .toList())
+                .toList();
+        collector.merge(positionalRanker.findPages(lemmaIds, alternativeLemmaIds, optionalLemmaIds, phraseTerms,
+                topCount, after, stopped));
     }
 
     /**
-     * Метод ищет индексы, соответствующие страницам заданного сайта, на которых имеется вся комбинация искомых лемм.
-     * Леммы уже отсортированы по возрастанию частоты встречаемости для минимизации просматриваемых в БД страниц,
-     * на каждой итерации число просматриваемых в БД страниц уменьшается
+     * Метод ищет страницы заданного сайта, на которых имеется вся комбинация искомых лемм, одним запросом к БД,
+     * в котором вычисляется и релевантность BM25 страниц (количество найденных страниц подсчитывается отдельным
+     * запросом, только если отобраны не все страницы). Необязательные леммы и альтернативы лемм исправленных слов
+     * в этом режиме не учитываются (исправленное слово ищется по одной лемме). Запросы к БД не прерываются, поэтому
+     * срок выполнения запроса проверяется только перед каждым из них
      *
      * @param lemmaEntities список лемм {@link LemmaEntity}
-     * @return Список индексов {@link IndexEntity}
+     * @param topCount      количество отбираемых страниц (offset + limit)
+     * @param after         курсор {@link SearchCursor}, после позиции которого отбираются страницы, либо null
+     * @param collector     коллектор лучших страниц {@link TopPagesCollector}
+     * @param stopped       признак прекращения поиска
      */
-    private List<IndexEntity> searchSiteIndexes(List<LemmaEntity> lemmaEntities) {
-        List<IndexEntity> allIndexEntities = new ArrayList<>();
-        List<IndexEntity> indexEntities;
-        Set<PageEntity> pageEntities = new HashSet<>();
-        boolean firstLemma = true;
-        for (LemmaEntity lemmaEntity : lemmaEntities) {
-            if (firstLemma) {
-                indexEntities = indexRepository.findAllByLemma(lemmaEntity);
-                firstLemma = false;
-            } else {
-                indexEntities = indexRepository.findAllByPageInAndLemma(pageEntities, lemmaEntity);
-            }
-            if (indexEntities.isEmpty()) {
-                return indexEntities;
-            }
-            allIndexEntities.addAll(indexEntities);
-            pageEntities = indexEntities.stream().map(IndexEntity::getPage).collect(Collectors.toSet());
+    private void searchSiteDatabase(List<LemmaEntity> lemmaEntities, int topCount, SearchCursor after,
+                                    TopPagesCollector collector, BooleanSupplier stopped) {
+        if (stopped.getAsBoolean()) {
+            return;
+        }
+        List<Integer> lemmaIds = lemmaEntities.stream().map(LemmaEntity::getId).toList();
+        SiteEntity siteEntity = lemmaEntities.get(0).getSite();
+        int docCount = Math.max(siteEntity.getDocCount(),
+                lemmaEntities.stream().mapToInt(LemmaEntity::getFrequency).max().orElse(0));
+        double averageLength = siteEntity.getDocCount() <= 0 ? 0d :
+                (double) siteEntity.getTokenCount() / siteEntity.getDocCount();
+        int limit = after == null ? topCount : (int) Math.min((long) after.position() + topCount, Integer.MAX_VALUE);
+        List<PageScoreProjection> pageScores = indexRepository.findTopPageScores(lemmaIds, lemmaIds.size(),
+                docCount, averageLength, Bm25.K1, Bm25.B, limit);
+        int totalCount = pageScores.size() < limit || stopped.getAsBoolean() ? pageScores.size() :
+                indexRepository.countPagesWithAllLemmas(lemmaIds, lemmaIds.size());
+        int[] pageIds = new int[pageScores.size()];
+        double[] scores = new double[pageScores.size()];
+        for (int i = 0; i < pageScores.size(); i++) {
+            pageIds[i] = pageScores.get(i).getPageId();
+            scores[i] = pageScores.get(i).getScore();
         }
-        Set<PageEntity> finalPageEntities = pageEntities;
-        return allIndexEntities.stream()
-                .filter(indexEntity -> finalPageEntities.contains(indexEntity.getPage())).toList();
+        collector.merge(new TopPages(pageIds, scores, pageIds.length, totalCount));
     }
 
     /**
      * Метод формирует список информации о найденных страницах, требуемой для ответа на запрос пользователя
      *
-     * @param pageRelRanks    список пар ключ-значение Страница {@link PageEntity} - Относительная релевантность
-     *                        (см. результат {@link #searchPages(Map)})
-     * @param lemmasSearchMap словарь Сайт {@link SiteEntity} - Результат поиска лемм {@link SiteLemmasSearchResult}
-     *                        (см. результат {@link #searchLemmaEntities(SiteEntity, Set)})
+     * @param pageRelRanks список пар ключ-значение Идентификатор страницы - Релевантность
+     *                     (см. результат {@link #searchPages(Map, List, int, SearchCursor, SearchDeadline)})
+     * @param siteLemmas   словарь Идентификатор сайта - Список искомых на сайте лемм
+     * @param deadline     срок выполнения запроса {@link SearchDeadline}; после его истечения snippet/ы
+     *                     оставшихся страниц формируются из начала текста без поиска искомых слов
      * @return Список объектов {@link SearchItem}
      */
-    private List<SearchItem> getData(List<Map.Entry<PageEntity, Double>> pageRelRanks,
-                                     Map<SiteEntity, SiteLemmasSearchResult> lemmasSearchMap) {
-        @SuppressWarnings("unused") List<PageEntity> preloadAllPages = pageRepository.findAllByIdIn(pageRelRanks.stream()
-                .map(value -> value.getKey().getId()).toList());
+    private List<SearchItem> getData(List<Map.Entry<Integer, Double>> pageRelRanks,
+                                     Map<Integer, List<String>> siteLemmas, SearchDeadline deadline) {
+        Map<Integer, List<LemmaSearchResult>> pageOffsets = deadline.isExpired() ? Collections.emptyMap() :
+                findLemmaOffsets(pageRelRanks.stream().map(Map.Entry::getKey).toList(), siteLemmas);
+        Map<Integer, PageSnippetProjection> pages = pageRepository.findSnippetsByIdIn(pageRelRanks.stream()
+                .map(Map.Entry::getKey).toList()).stream()
+                .collect(Collectors.toMap(PageSnippetProjection::getId, Function.identity()));
+        Map<Integer, SiteEntity> siteEntities = siteRepository.findAllById(pages.values().stream()
+                .map(PageSnippetProjection::getSiteId).collect(Collectors.toSet())).stream()
+                .collect(Collectors.toMap(SiteEntity::getId, Function.identity()));
         List<SearchItem> data = new ArrayList<>();
-        for (Map.Entry<PageEntity, Double> pageRank : pageRelRanks) {
-            SiteEntity siteEntity = pageRank.getKey().getSite();
-            Document jsoupDocument = Jsoup.parse(pageRank.getKey().getContent());
+        for (Map.Entry<Integer, Double> pageRank : pageRelRanks) {
+            PageSnippetProjection page = pages.get(pageRank.getKey());
+            if (page == null) {
+                continue;
+            }
+            SiteEntity siteEntity = siteEntities.get(page.getSiteId());
+            String text = Objects.requireNonNullElse(page.getText(), "");
 
             SearchItem searchItem = new SearchItem();
             searchItem.setSite(siteEntity.getUrl());
             searchItem.setSiteName(siteEntity.getName());
-            searchItem.setUri(pageRank.getKey().getPath());
-            searchItem.setTitle(jsoupDocument.title());
-            searchItem.setSnippet(getSnippet(jsoupDocument.text(), lemmasSearchMap.get(siteEntity).getLemmas()));
+            searchItem.setUri(page.getPath());
+            searchItem.setTitle(Objects.requireNonNullElse(page.getTitle(), ""));
+            List<LemmaSearchResult> lemmaOffsets = pageOffsets.get(page.getId());
+            if (lemmaOffsets != null) {
+                searchItem.setSnippet(buildSnippet(text, lemmaOffsets));
+            } else {
+                searchItem.setSnippet(deadline.isExpired() ? getPlainSnippet(text) : getSnippet(text,
+                        siteLemmas.getOrDefault(siteEntity.getId(), Collections.emptyList())));
+            }
             searchItem.setRelevance(pageRank.getValue());
 
             data.add(searchItem);
@@ -270,6 +719,35 @@ public class SearchServiceImpl implements SearchService {
         return data;
     }
 
+    /**
+     * Метод загружает одним запросом сохраненные при индексации смещения первых вхождений искомых лемм на
+     * заданных страницах (см. {@link LemmaAnalyzerService#getLemmaOccurrences(String, int, boolean)})
+     *
+     * @param pageIds    идентификаторы страниц
+     * @param siteLemmas словарь Идентификатор сайта - Список искомых на сайте лемм
+     * @return Словарь Идентификатор страницы - Список вхождений лемм {@link LemmaSearchResult} в порядке возрастания
+     * смещений (страницы, проиндексированные без сохранения смещений, в словарь не входят)
+     */
+    private Map<Integer, List<LemmaSearchResult>> findLemmaOffsets(List<Integer> pageIds,
+                                                                   Map<Integer, List<String>> siteLemmas) {
+        Set<String> lemmas = siteLemmas.values().stream().flatMap(List::stream).collect(Collectors.toSet());
+        if (pageIds.isEmpty() || lemmas.isEmpty() || searchSettings.getSnippetOffsetCount() <= 0) {
+            return Collections.emptyMap();
+        }
+        Map<Integer, List<LemmaSearchResult>> pageOffsets = new HashMap<>();
+        for (IndexOffsetsProjection projection : indexRepository.findOffsetsByPageIdInAndLemmaIn(pageIds, lemmas)) {
+            List<LemmaSearchResult> lemmaOffsets = pageOffsets.computeIfAbsent(projection.getPageId(),
+                    pageId -> new ArrayList<>());
+            int[] offsets = PositionCodec.decode(projection.getOffsets());
+            for (int i = 0; i + 1 < offsets.length; i += 2) {
+                lemmaOffsets.add(new LemmaSearchResult(offsets[i], offsets[i + 1], projection.getLemma()));
+            }
+        }
+        pageOffsets.values().forEach(lemmaOffsets ->
+                lemmaOffsets.sort(Comparator.comparingInt(LemmaSearchResult::startIndex)));
+        return pageOffsets;
+    }
+
     /**
      * Метод возвращает часть исходного текста с первым найденным словом, соответствующим заданному списку лемм.
      * Данное слово выделяется тегом <b><b/>
@@ -279,10 +757,29 @@ public class SearchServiceImpl implements SearchService {
      * @return часть текста с выделенным словом
      */
     private String getSnippet(String text, List<String> lemmas) {
-        List<LemmaSearchResult> lemmaSearchResults = lemmaAnalyzer.findFirstLemmas(text, lemmas,
-                MAX_SNIPPET_LENGTH, false);
+        return buildSnippet(text, lemmaAnalyzer.findFirstLemmas(text, lemmas, MAX_SNIPPET_LENGTH, false));
+    }
+
+    /**
+     * Метод вырезает из исходного текста часть, начинающуюся (с небольшим отступом) с первого найденного слова,
+     * и выделяет тегом <b><b/> все найденные слова, попавшие в эту часть
+     *
+     * @param text               исходный текст
+     * @param lemmaSearchResults найденные в тексте слова в порядке возрастания смещений
+     * @return часть текста с выделенными словами
+     */
+    private String buildSnippet(String text, List<LemmaSearchResult> lemmaSearchResults) {
+        // Одно слово может соответствовать нескольким леммам, а смещения - относиться к устаревшему тексту
+        List<LemmaSearchResult> words = new ArrayList<>();
+        for (LemmaSearchResult lemmaSearchResult : lemmaSearchResults) {
+            if (lemmaSearchResult.endIndex() <= text.length() && (words.isEmpty() ||
+                    lemmaSearchResult.startIndex() >= words.get(words.size() - 1).endIndex())) {
+                words.add(lemmaSearchResult);
+            }
+        }
+        lemmaSearchResults = words;
         if (lemmaSearchResults.isEmpty()) {
-            return text.substring(0, MAX_SNIPPET_LENGTH) + "...";
+            return getPlainSnippet(text);
         }
 
         StringBuilder stringBuilder = new StringBuilder();
@@ -312,4 +809,14 @@ public class SearchServiceImpl implements SearchService {
 
         return stringBuilder.toString();
     }
+
+    /**
+     * Метод возвращает начало исходного текста без выделения слов
+     *
+     * @param text исходный текст
+     * @return начало текста длиной не более MAX_SNIPPET_LENGTH символов
+     */
+    private String getPlainSnippet(String text) {
+        return text.length() > MAX_SNIPPET_LENGTH ? text.substring(0, MAX_SNIPPET_LENGTH) + "..." : text;
+    }
 }
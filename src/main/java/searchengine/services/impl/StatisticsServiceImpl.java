@@ -9,14 +9,19 @@ import searchengine.dto.statistics.DetailedStatisticsItem;
 import searchengine.dto.statistics.StatisticsData;
 import searchengine.dto.statistics.StatisticsResponse;
 import searchengine.dto.statistics.TotalStatistics;
+import searchengine.model.IndexStatusType;
 import searchengine.model.SiteEntity;
 import searchengine.repositories.LemmaRepository;
 import searchengine.repositories.PageRepository;
 import searchengine.repositories.SiteRepository;
+import searchengine.services.LemmaAnalyzerService;
 import searchengine.services.StatisticsService;
+import searchengine.services.index.SearchResultCache;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Log4j2
 @Service
@@ -26,6 +31,8 @@ public class StatisticsServiceImpl implements StatisticsService {
     private final SiteRepository siteRepository;
     private final PageRepository pageRepository;
     private final LemmaRepository lemmaRepository;
+    private final SearchResultCache searchResultCache;
+    private final LemmaAnalyzerService lemmaAnalyzer;
 
     /**
      * Метод формирует ответ на запрос статистики
@@ -34,7 +41,7 @@ public class StatisticsServiceImpl implements StatisticsService {
      */
     @Override
     public StatisticsResponse getStatistics() {
-        List<SiteEntity> siteEntities = siteRepository.findAll();
+        List<SiteEntity> siteEntities = selectSiteGenerations(siteRepository.findAll());
 
         TotalStatistics total = new TotalStatistics();
         total.setSites(siteEntities.size());
@@ -61,8 +68,28 @@ public class StatisticsServiceImpl implements StatisticsService {
         StatisticsData data = new StatisticsData();
         data.setTotal(total);
         data.setDetailed(detailed);
+        data.setSearchCache(searchResultCache.getStatistics());
+        data.setLemmaCache(lemmaAnalyzer.getCacheStatistics());
         response.setStatistics(data);
         response.setResult(true);
         return response;
     }
+
+    /**
+     * Метод отбирает для статистики по одному поколению каждого сайта: индексируемое, если сайт в процессе
+     * индексации, иначе - активное (поколения, ожидающие удаления, не учитываются)
+     *
+     * @param siteEntities все поколения сайтов {@link SiteEntity}
+     * @return Список отобранных поколений сайтов
+     */
+    private List<SiteEntity> selectSiteGenerations(List<SiteEntity> siteEntities) {
+        Map<String, SiteEntity> selected = new LinkedHashMap<>();
+        for (SiteEntity siteEntity : siteEntities) {
+            boolean isIndexing = !siteEntity.getActive() && siteEntity.getStatus() == IndexStatusType.INDEXING;
+            if (isIndexing || (siteEntity.getActive() && !selected.containsKey(siteEntity.getUrl()))) {
+                selected.put(siteEntity.getUrl(), siteEntity);
+            }
+        }
+        return new ArrayList<>(selected.values());
+    }
 }
@@ -0,0 +1,60 @@
+package searchengine.services.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import searchengine.dto.suggest.SuggestItem;
+import searchengine.dto.suggest.SuggestResponse;
+import searchengine.services.SuggestService;
+import searchengine.services.index.LemmaDictionary;
+import searchengine.services.index.SuggestIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@SuppressWarnings("JavadocLinkAsPlainText")
+@Log4j2
+@Service
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class SuggestServiceImpl implements SuggestService {
+    private static final int MAX_LIMIT = 50;
+    private static final String EMPTY_PREFIX = "Задан пустой префикс";
+    private static final String INVALID_LIMIT = "Задано некорректное значение параметра limit";
+    private static final String SITE_NOT_FOUND = "Заданный сайт не найден в базе данных";
+
+    private final SuggestIndex suggestIndex;
+
+    /**
+     * Метод формирует список самых частых лемм, начинающихся с заданного префикса
+     *
+     * @param prefix префикс (начало вводимого пользователем слова)
+     * @param site   сайт, по леммам которого формируются подсказки (если не задан, то по всем сайтам);
+     *               задаётся в формате http://www.site.com (без слэша в конце)
+     * @param limit  максимальное количество подсказок
+     * @return Объект {@link SuggestResponse}
+     */
+    @Override
+    public SuggestResponse suggest(String prefix, String site, Integer limit) {
+        String normalizedPrefix = prefix.strip().toLowerCase().replace("ё", "е");
+        if (normalizedPrefix.isEmpty()) {
+            return new SuggestResponse(false, null, EMPTY_PREFIX);
+        }
+        if (limit < 1) {
+            return new SuggestResponse(false, null, INVALID_LIMIT);
+        }
+        Integer siteId = null;
+        if (!site.isEmpty()) {
+            siteId = suggestIndex.getActiveSiteId(site);
+            if (siteId == null) {
+                return new SuggestResponse(false, null, SITE_NOT_FOUND);
+            }
+        }
+        LemmaDictionary dictionary = suggestIndex.getDictionary(siteId);
+        List<SuggestItem> data = new ArrayList<>();
+        for (int index : dictionary.findTopByPrefix(normalizedPrefix, Math.min(limit, MAX_LIMIT))) {
+            data.add(new SuggestItem(dictionary.lemma(index), dictionary.frequency(index)));
+        }
+        return new SuggestResponse(true, data, null);
+    }
+}
@@ -0,0 +1,59 @@
+package searchengine.services.index;
+
+public class Bm25 {
+    public static final double K1 = 1.2d;
+    public static final double B = 0.75d;
+
+    private Bm25() {
+    }
+
+    /**
+     * Метод вычисляет обратную документную частоту леммы
+     *
+     * @param docCount     количество проиндексированных страниц сайта
+     * @param docFrequency количество страниц сайта, на которых встречается лемма
+     * @return Значение IDF (всегда положительное)
+     */
+    public static double idf(int docCount, int docFrequency) {
+        return Math.log(1d + (docCount - docFrequency + 0.5d) / (docFrequency + 0.5d));
+    }
+
+    /**
+     * Метод вычисляет нормирующую добавку к частоте леммы, зависящую от длины страницы
+     *
+     * @param docLength     длина страницы (в леммах)
+     * @param averageLength средняя длина страницы сайта (в леммах)
+     * @return Значение K1 * (1 - B + B * docLength / averageLength)
+     */
+    public static double lengthNorm(int docLength, double averageLength) {
+        double relativeLength = docLength <= 0 || averageLength <= 0d ? 1d : docLength / averageLength;
+        return K1 * (1d - B + B * relativeLength);
+    }
+
+    /**
+     * Метод вычисляет вклад леммы в релевантность страницы
+     *
+     * @param idf        обратная документная частота леммы (см. {@link #idf(int, int)})
+     * @param tf         количество вхождений леммы на странице
+     * @param lengthNorm нормирующая добавка (см. {@link #lengthNorm(int, double)})
+     * @return Вклад леммы в релевантность страницы
+     */
+    public static double score(double idf, int tf, double lengthNorm) {
+        return idf * tf * (K1 + 1d) / (tf + lengthNorm);
+    }
+
+    /**
+     * Метод вычисляет верхнюю границу вклада леммы в релевантность любой страницы (вклад растет с количеством
+     * вхождений леммы и убывает с длиной страницы)
+     *
+     * @param idf           обратная документная частота леммы (см. {@link #idf(int, int)})
+     * @param maxTf         максимальное количество вхождений леммы на странице
+     * @param minDocLength  минимальная длина страницы, содержащей лемму (0, если неизвестна)
+     * @param averageLength средняя длина страницы сайта (в леммах)
+     * @return Максимально возможный вклад леммы в релевантность страницы
+     */
+    public static double upperBound(double idf, int maxTf, int minDocLength, double averageLength) {
+        double minLengthNorm = minDocLength <= 0 ? K1 * (1d - B) : lengthNorm(minDocLength, averageLength);
+        return score(idf, maxTf, minLengthNorm);
+    }
+}
@@ -0,0 +1,7 @@
+package searchengine.services.index;
+
+import java.util.List;
+import java.util.Map;
+
+public record CachedSearch(TopPages topPages, Map<Integer, List<String>> siteLemmas, long generation) {
+}
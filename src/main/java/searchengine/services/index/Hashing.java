@@ -0,0 +1,26 @@
+package searchengine.services.index;
+
+public class Hashing {
+
+    /**
+     * Метод вычисляет 64-битный хэш строки: хэш FNV-1a с финальным перемешиванием битов (финализатор MurmurHash3),
+     * т.к. у коротких строк старшие биты FNV распределены плохо. Используется фильтрами лемм
+     * {@link LemmaBloomFilter} и отпечатками ссылок обходчика сайтов
+     *
+     * @param value строка
+     * @return Хэш строки
+     */
+    public static long hash64(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,97 @@
+package searchengine.services.index;
+
+import java.util.Collection;
+
+/**
+ * Фильтр Блума лемм сайта: компактное множество, которое может ошибочно сообщить о наличии отсутствующей леммы
+ * (с вероятностью не более 2 * FALSE_POSITIVE_PROBABILITY), но никогда не сообщает об отсутствии имеющейся леммы.
+ * Фильтр масштабируемый: когда количество добавленных лемм достигает расчетного, новые леммы добавляются в
+ * следующий слой вдвое большей емкости с вдвое меньшей вероятностью ошибки, поэтому общая вероятность ошибки
+ * не растет при любом количестве лемм. Удаление лемм не поддерживается
+ */
+public class LemmaBloomFilter {
+    private static final double FALSE_POSITIVE_PROBABILITY = 0.01d;
+    private static final int MIN_CAPACITY = 1024;  // Минимальное количество лемм, на которое рассчитывается фильтр
+    private static final double CAPACITY_RESERVE = 1.25d;  // Запас на леммы, добавляемые после построения фильтра
+
+    private final long[] bits;
+    private final int bitCount;
+    private final int hashCount;
+    private final long capacity;
+    private final double falsePositiveProbability;
+    private long count = 0L;
+    private LemmaBloomFilter next;  // Следующий слой, создаваемый при заполнении фильтра
+
+    /**
+     * Конструктор фильтра, рассчитанного на заданное количество лемм
+     *
+     * @param expectedCount ожидаемое количество лемм
+     */
+    public LemmaBloomFilter(int expectedCount) {
+        this(Math.max((long) (expectedCount * CAPACITY_RESERVE), MIN_CAPACITY), FALSE_POSITIVE_PROBABILITY);
+    }
+
+    private LemmaBloomFilter(long capacity, double falsePositiveProbability) {
+        this.capacity = capacity;
+        this.falsePositiveProbability = falsePositiveProbability;
+        long optimalBitCount = (long) Math.ceil(-capacity * Math.log(falsePositiveProbability) /
+                (Math.log(2) * Math.log(2)));
+        bits = new long[(int) Math.min((optimalBitCount + 63) >>> 6, Integer.MAX_VALUE >>> 6)];
+        bitCount = bits.length << 6;
+        hashCount = Math.max(1, (int) Math.round((double) bitCount / capacity * Math.log(2)));
+    }
+
+    /**
+     * Метод строит фильтр по набору лемм
+     *
+     * @param lemmas леммы
+     * @return Фильтр {@link LemmaBloomFilter}
+     */
+    public static LemmaBloomFilter of(Collection<String> lemmas) {
+        LemmaBloomFilter filter = new LemmaBloomFilter(lemmas.size());
+        lemmas.forEach(filter::add);
+        return filter;
+    }
+
+    /**
+     * Метод добавляет лемму в фильтр, а если фильтр уже заполнен - в его следующий слой
+     *
+     * @param lemma лемма
+     */
+    public synchronized void add(String lemma) {
+        if (count >= capacity) {
+            if (next == null) {
+                next = new LemmaBloomFilter(capacity * 2, falsePositiveProbability / 2);
+            }
+            next.add(lemma);
+            return;
+        }
+        count++;
+        long hash = Hashing.hash64(lemma);
+        int hash1 = (int) hash;
+        int hash2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            int bit = Math.floorMod(hash1 + i * hash2, bitCount);
+            bits[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    /**
+     * Метод проверяет, может ли лемма присутствовать на сайте
+     *
+     * @param lemma лемма
+     * @return False, если леммы на сайте заведомо нет
+     */
+    public synchronized boolean mightContain(String lemma) {
+        long hash = Hashing.hash64(lemma);
+        int hash1 = (int) hash;
+        int hash2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            int bit = Math.floorMod(hash1 + i * hash2, bitCount);
+            if ((bits[bit >>> 6] & (1L << bit)) == 0) {
+                return next != null && next.mightContain(lemma);
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,329 @@
+package searchengine.services.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Неизменяемый словарь лемм: леммы отсортированы по алфавиту, так что леммы с общим префиксом занимают непрерывный
+ * диапазон, а разреженная таблица (sparse table) позволяет за O(1) найти самую частую лемму любого диапазона
+ */
+public class LemmaDictionary {
+    public static final LemmaDictionary EMPTY = new LemmaDictionary(new String[0], new int[0]);
+
+    private final String[] lemmas;
+    private final int[] frequencies;
+    private final int[][] sparseTable;  // sparseTable[j - 1][i] - индекс самой частой леммы в диапазоне [i, i + 2^j)
+
+    /**
+     * Конструктор словаря
+     *
+     * @param lemmas      леммы в порядке возрастания (без повторов)
+     * @param frequencies частоты лемм (количество страниц, на которых встречается лемма)
+     */
+    public LemmaDictionary(String[] lemmas, int[] frequencies) {
+        this.lemmas = lemmas;
+        this.frequencies = frequencies;
+        int n = lemmas.length;
+        int levels = n < 2 ? 0 : 31 - Integer.numberOfLeadingZeros(n);
+        sparseTable = new int[levels][];
+        for (int j = 1; j <= levels; j++) {
+            int half = 1 << (j - 1);
+            int[] level = new int[n - (1 << j) + 1];
+            for (int i = 0; i < level.length; i++) {
+                level[i] = better(argMax(j - 1, i), argMax(j - 1, i + half));
+            }
+            sparseTable[j - 1] = level;
+        }
+    }
+
+    /**
+     * Метод строит словарь из неупорядоченного набора лемм; частоты одинаковых лемм суммируются
+     *
+     * @param lemmas      леммы
+     * @param frequencies частоты лемм
+     * @return Словарь {@link LemmaDictionary}
+     */
+    public static LemmaDictionary of(List<String> lemmas, List<Integer> frequencies) {
+        Integer[] order = new Integer[lemmas.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing(lemmas::get));
+        List<String> sortedLemmas = new ArrayList<>();
+        List<Integer> sortedFrequencies = new ArrayList<>();
+        for (int i : order) {
+            int last = sortedLemmas.size() - 1;
+            if (last >= 0 && sortedLemmas.get(last).equals(lemmas.get(i))) {
+                sortedFrequencies.set(last, sortedFrequencies.get(last) + frequencies.get(i));
+            } else {
+                sortedLemmas.add(lemmas.get(i));
+                sortedFrequencies.add(frequencies.get(i));
+            }
+        }
+        return new LemmaDictionary(sortedLemmas.toArray(String[]::new),
+                sortedFrequencies.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    /**
+     * Метод объединяет несколько словарей (слиянием упорядоченных массивов); частоты одинаковых лемм суммируются
+     *
+     * @param dictionaries объединяемые словари
+     * @return Объединенный словарь {@link LemmaDictionary}
+     */
+    public static LemmaDictionary merge(Collection<LemmaDictionary> dictionaries) {
+        List<String> lemmas = new ArrayList<>();
+        List<Integer> frequencies = new ArrayList<>();
+        // Очередь курсоров {номер словаря, позиция}, упорядоченная по текущей лемме
+        List<LemmaDictionary> sources = new ArrayList<>(dictionaries);
+        PriorityQueue<int[]> cursors = new PriorityQueue<>(Comparator.comparing(
+                (int[] cursor) -> sources.get(cursor[0]).lemmas[cursor[1]]));
+        for (int k = 0; k < sources.size(); k++) {
+            if (sources.get(k).size() > 0) {
+                cursors.add(new int[]{k, 0});
+            }
+        }
+        while (!cursors.isEmpty()) {
+            int[] cursor = cursors.poll();
+            LemmaDictionary source = sources.get(cursor[0]);
+            String lemma = source.lemmas[cursor[1]];
+            int last = lemmas.size() - 1;
+            if (last >= 0 && lemmas.get(last).equals(lemma)) {
+                frequencies.set(last, frequencies.get(last) + source.frequencies[cursor[1]]);
+            } else {
+                lemmas.add(lemma);
+                frequencies.add(source.frequencies[cursor[1]]);
+            }
+            if (++cursor[1] < source.size()) {
+                cursors.add(cursor);
+            }
+        }
+        return new LemmaDictionary(lemmas.toArray(String[]::new),
+                frequencies.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    public int size() {
+        return lemmas.length;
+    }
+
+    public String lemma(int index) {
+        return lemmas[index];
+    }
+
+    public int frequency(int index) {
+        return frequencies[index];
+    }
+
+    /**
+     * Метод ищет первую позицию, лемма в которой не меньше заданной строки
+     *
+     * @param key строка
+     * @return Позиция в словаре (size, если все леммы меньше строки)
+     */
+    public int lowerBound(String key) {
+        int low = 0;
+        int high = lemmas.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (lemmas[middle].compareTo(key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Метод проверяет наличие леммы в словаре
+     *
+     * @param lemma лемма
+     * @return True, если лемма имеется в словаре
+     */
+    public boolean contains(String lemma) {
+        int index = lowerBound(lemma);
+        return index < lemmas.length && lemmas[index].equals(lemma);
+    }
+
+    /**
+     * Метод отбирает самые частые леммы, начинающиеся с заданного префикса. Диапазон лемм с префиксом находится
+     * двоичным поиском, а лучшие леммы - обходом поддиапазонов в порядке убывания их максимальной частоты,
+     * т.е. за O(log n + limit * log limit) независимо от количества лемм с префиксом
+     *
+     * @param prefix префикс
+     * @param limit  максимальное количество лемм
+     * @return Индексы лемм в словаре в порядке убывания частоты
+     */
+    public int[] findTopByPrefix(String prefix, int limit) {
+        int from = lowerBound(prefix);
+        int to = lowerBound(prefix + Character.MAX_VALUE);
+        if (from >= to || limit <= 0) {
+            return new int[0];
+        }
+        int[] result = new int[Math.min(limit, to - from)];
+        // Очередь диапазонов {начало, конец (не включая), индекс самой частой леммы}
+        PriorityQueue<int[]> ranges = new PriorityQueue<>((a, b) -> frequencies[a[2]] != frequencies[b[2]] ?
+                Integer.compare(frequencies[b[2]], frequencies[a[2]]) : Integer.compare(a[2], b[2]));
+        ranges.add(new int[]{from, to, rangeArgMax(from, to)});
+        for (int count = 0; count < result.length; count++) {
+            int[] range = ranges.poll();
+            int best = range[2];
+            result[count] = best;
+            if (range[0] < best) {
+                ranges.add(new int[]{range[0], best, rangeArgMax(range[0], best)});
+            }
+            if (best + 1 < range[1]) {
+                ranges.add(new int[]{best + 1, range[1], rangeArgMax(best + 1, range[1])});
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Метод ищет лемму, ближайшую к заданному слову по расстоянию Левенштейна (не более maxEdits правок), а среди
+     * равноудаленных - самую частую. Словарь обходится как префиксное дерево: леммы с общим префиксом образуют
+     * непрерывный диапазон, а его поддиапазоны для следующего символа находятся двоичным поиском. Для каждого
+     * префикса вычисляется строка матрицы расстояний (состояние автомата Левенштейна), и если все ее значения
+     * превышают допустимое расстояние, то весь диапазон лемм с этим префиксом пропускается
+     *
+     * @param word     слово
+     * @param maxEdits максимальное количество правок (вставок, удалений, замен символов)
+     * @return Индекс найденной леммы в словаре, либо -1, если подходящей леммы нет
+     */
+    public int findClosest(String word, int maxEdits) {
+        if (lemmas.length == 0 || maxEdits < 0) {
+            return -1;
+        }
+        int[] row = new int[word.length() + 1];
+        for (int j = 0; j < row.length; j++) {
+            row[j] = j;
+        }
+        int[] best = {-1, maxEdits};  // {индекс лучшей леммы, допустимое расстояние}
+        findClosest(word, 0, lemmas.length, 0, row, best);
+        return best[0];
+    }
+
+    private void findClosest(String word, int from, int to, int depth, int[] row, int[] best) {
+        // Лемма, совпадающая с префиксом диапазона, находится в его начале
+        if (lemmas[from].length() == depth) {
+            int distance = row[word.length()];
+            if (distance < best[1] || (distance == best[1] &&
+                    (best[0] < 0 || frequencies[from] > frequencies[best[0]]))) {
+                best[0] = from;
+                best[1] = distance;
+            }
+            from++;
+        }
+        while (from < to) {
+            char c = lemmas[from].charAt(depth);
+            int end = charUpperBound(from, to, depth, c);
+            int[] nextRow = new int[row.length];
+            if (fillNextRow(word, row, c, nextRow) <= best[1]) {
+                findClosest(word, from, end, depth + 1, nextRow, best);
+            }
+            from = end;
+        }
+    }
+
+    /**
+     * Метод ищет все леммы, отстоящие от заданного слова по расстоянию Левенштейна не более чем на maxEdits правок
+     * (словарь обходится так же, как в методе {@link #findClosest(String, int)}), и отбирает из них limit лучших:
+     * сначала ближайшие, а среди равноудаленных - самые частые
+     *
+     * @param word     слово
+     * @param maxEdits максимальное количество правок (вставок, удалений, замен символов)
+     * @param limit    максимальное количество лемм
+     * @return Индексы найденных лемм в словаре в порядке возрастания расстояния (и убывания частоты)
+     */
+    public int[] findWithin(String word, int maxEdits, int limit) {
+        if (lemmas.length == 0 || maxEdits < 0 || limit <= 0) {
+            return new int[0];
+        }
+        int[] row = new int[word.length() + 1];
+        for (int j = 0; j < row.length; j++) {
+            row[j] = j;
+        }
+        List<int[]> found = new ArrayList<>();  // {индекс леммы, расстояние}
+        findWithin(word, 0, lemmas.length, 0, row, maxEdits, found);
+        return found.stream()
+                .sorted(Comparator.<int[]>comparingInt(entry -> entry[1])
+                        .thenComparing(entry -> frequencies[entry[0]], Comparator.reverseOrder())
+                        .thenComparingInt(entry -> entry[0]))
+                .limit(limit)
+                .mapToInt(entry -> entry[0])
+                .toArray();
+    }
+
+    private void findWithin(String word, int from, int to, int depth, int[] row, int maxEdits, List<int[]> found) {
+        if (lemmas[from].length() == depth) {
+            if (row[word.length()] <= maxEdits) {
+                found.add(new int[]{from, row[word.length()]});
+            }
+            from++;
+        }
+        while (from < to) {
+            char c = lemmas[from].charAt(depth);
+            int end = charUpperBound(from, to, depth, c);
+            int[] nextRow = new int[row.length];
+            if (fillNextRow(word, row, c, nextRow) <= maxEdits) {
+                findWithin(word, from, end, depth + 1, nextRow, maxEdits, found);
+            }
+            from = end;
+        }
+    }
+
+    /**
+     * Метод вычисляет строку матрицы расстояний Левенштейна для префикса, продолженного символом c
+     *
+     * @param word    слово
+     * @param row     строка матрицы для префикса
+     * @param c       следующий символ префикса
+     * @param nextRow заполняемая строка матрицы для продолженного префикса
+     * @return Минимальное значение строки (если оно превышает допустимое расстояние, то ни одна лемма с таким
+     * префиксом не подходит)
+     */
+    private static int fillNextRow(String word, int[] row, char c, int[] nextRow) {
+        nextRow[0] = row[0] + 1;
+        int minDistance = nextRow[0];
+        for (int j = 1; j < row.length; j++) {
+            nextRow[j] = Math.min(Math.min(row[j], nextRow[j - 1]) + 1,
+                    row[j - 1] + (word.charAt(j - 1) == c ? 0 : 1));
+            minDistance = Math.min(minDistance, nextRow[j]);
+        }
+        return minDistance;
+    }
+
+    /**
+     * Метод ищет в диапазоне лемм с общим префиксом длины depth (и длиной больше depth) первую позицию, символ
+     * леммы в которой на позиции depth больше заданного
+     */
+    private int charUpperBound(int from, int to, int depth, char c) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (lemmas[middle].charAt(depth) <= c) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int rangeArgMax(int from, int to) {
+        int level = 31 - Integer.numberOfLeadingZeros(to - from);
+        return better(argMax(level, from), argMax(level, to - (1 << level)));
+    }
+
+    private int argMax(int level, int index) {
+        return level == 0 ? index : sparseTable[level - 1][index];
+    }
+
+    private int better(int i, int j) {
+        return frequencies[j] > frequencies[i] ? j : i;
+    }
+}
@@ -0,0 +1,107 @@
+package searchengine.services.index;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import searchengine.model.SiteEntity;
+import searchengine.repositories.LemmaRepository;
+import searchengine.repositories.SiteRepository;
+
+import javax.annotation.PostConstruct;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Log4j2
+@Service
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class LemmaFilterIndex {
+    private final LemmaRepository lemmaRepository;
+    private final SiteRepository siteRepository;
+    private final Map<Integer, LemmaBloomFilter> siteFilters = new ConcurrentHashMap<>();
+
+    /**
+     * Метод при запуске приложения строит фильтры лемм всех активных сайтов
+     */
+    @PostConstruct
+    public void load() {
+        long startTimeMillis = System.currentTimeMillis();
+        for (SiteEntity siteEntity : siteRepository.findAllByActiveTrue()) {
+            rebuildSite(siteEntity.getId());
+        }
+        log.info("Фильтры лемм сайтов построены за " + (System.currentTimeMillis() - startTimeMillis) + " мс");
+    }
+
+    /**
+     * Метод перестраивает фильтр лемм сайта по БД (после завершения индексации сайта). При этом из фильтра
+     * исключаются леммы, количество страниц которых уменьшилось до нуля
+     *
+     * @param siteId идентификатор сайта
+     */
+    public void rebuildSite(int siteId) {
+        siteFilters.put(siteId, LemmaBloomFilter.of(lemmaRepository.findLemmasBySiteId(siteId)));
+    }
+
+    /**
+     * Метод создает пустой фильтр лемм для нового активного сайта (поиск по которому возможен еще во время его
+     * индексации). Фильтр рассчитан на минимальное количество лемм и растет по мере их добавления
+     * (см. {@link LemmaBloomFilter})
+     *
+     * @param siteId идентификатор сайта
+     */
+    public void addSite(int siteId) {
+        siteFilters.putIfAbsent(siteId, new LemmaBloomFilter(0));
+    }
+
+    /**
+     * Метод удаляет фильтр лемм сайта (например, предыдущего поколения сайта)
+     *
+     * @param siteId идентификатор сайта
+     */
+    public void removeSite(int siteId) {
+        siteFilters.remove(siteId);
+    }
+
+    /**
+     * Метод добавляет в фильтр сайта новые леммы. Для сайтов без фильтра (новых, еще не активных поколений)
+     * леммы не добавляются: их фильтры строятся при активации
+     *
+     * @param siteId идентификатор сайта
+     * @param lemmas новые леммы
+     */
+    public void addLemmas(int siteId, Collection<String> lemmas) {
+        LemmaBloomFilter filter = siteFilters.get(siteId);
+        if (filter != null) {
+            lemmas.forEach(filter::add);
+        }
+    }
+
+    /**
+     * Метод проверяет, могут ли на сайте присутствовать все заданные леммы
+     *
+     * @param siteId идентификатор сайта
+     * @param lemmas леммы
+     * @return False, если хотя бы одной из лемм на сайте заведомо нет (True для сайтов без фильтра)
+     */
+    public boolean mightContainAll(int siteId, Collection<String> lemmas) {
+        LemmaBloomFilter filter = siteFilters.get(siteId);
+        return filter == null || lemmas.stream().allMatch(filter::mightContain);
+    }
+
+    /**
+     * Метод отбирает активные сайты, на которых могут присутствовать все заданные леммы (фильтры имеются у всех
+     * активных сайтов: они строятся при запуске приложения, при активации поколения сайта и при добавлении сайта
+     * для индексации отдельной страницы)
+     *
+     * @param lemmas леммы
+     * @return Список идентификаторов сайтов
+     */
+    public List<Integer> findSites(Collection<String> lemmas) {
+        return siteFilters.entrySet().stream()
+                .filter(entry -> lemmas.stream().allMatch(entry.getValue()::mightContain))
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+}
@@ -0,0 +1,108 @@
+package searchengine.services.index;
+
+/**
+ * Длины страниц (в леммах) одного поколения сайта: хэш-таблица с открытой адресацией, в каждой ячейке которой
+ * упакованы идентификатор страницы (старшие 32 бита) и ее длина. Таблица удаляется вместе с сайтом, поэтому память
+ * соответствует количеству страниц сайта, а не максимальному идентификатору страницы. Чтение выполняется без
+ * блокировки: при одновременном изменении таблицы длина страницы может быть временно не найдена (0)
+ */
+public class PageLengths {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final long EMPTY = 0L;
+
+    private volatile long[] table = new long[INITIAL_CAPACITY];
+    private int size = 0;
+
+    /**
+     * Метод возвращает длину страницы
+     *
+     * @param pageId идентификатор страницы
+     * @return Длина страницы, либо 0, если она неизвестна
+     */
+    public int get(int pageId) {
+        long[] slots = table;
+        int mask = slots.length - 1;
+        for (int i = slot(pageId, mask); slots[i] != EMPTY; i = (i + 1) & mask) {
+            if ((int) (slots[i] >>> 32) == pageId) {
+                return (int) slots[i];
+            }
+        }
+        return 0;
+    }
+
+    public synchronized void put(int pageId, int length) {
+        long[] slots = table;
+        if ((size + 1) * 2 > slots.length) {
+            slots = resize(slots);
+        }
+        int mask = slots.length - 1;
+        int i = slot(pageId, mask);
+        while (slots[i] != EMPTY && (int) (slots[i] >>> 32) != pageId) {
+            i = (i + 1) & mask;
+        }
+        if (slots[i] == EMPTY) {
+            size++;
+        }
+        slots[i] = pack(pageId, length);
+        table = slots;
+    }
+
+    /**
+     * Метод удаляет длину страницы, сдвигая следующие за ней ячейки той же цепочки (без пометок удаления)
+     *
+     * @param pageId идентификатор страницы
+     */
+    public synchronized void remove(int pageId) {
+        long[] slots = table;
+        int mask = slots.length - 1;
+        int i = slot(pageId, mask);
+        while (slots[i] != EMPTY && (int) (slots[i] >>> 32) != pageId) {
+            i = (i + 1) & mask;
+        }
+        if (slots[i] == EMPTY) {
+            return;
+        }
+        size--;
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (slots[j] == EMPTY) {
+                break;
+            }
+            int home = slot((int) (slots[j] >>> 32), mask);
+            if (((j - home) & mask) >= ((j - i) & mask)) {
+                slots[i] = slots[j];
+                i = j;
+            }
+        }
+        slots[i] = EMPTY;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private long[] resize(long[] slots) {
+        long[] newSlots = new long[slots.length * 2];
+        int mask = newSlots.length - 1;
+        for (long packed : slots) {
+            if (packed != EMPTY) {
+                int i = slot((int) (packed >>> 32), mask);
+                while (newSlots[i] != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+                newSlots[i] = packed;
+            }
+        }
+        return newSlots;
+    }
+
+    private static int slot(int pageId, int mask) {
+        int hash = pageId * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private static long pack(int pageId, int length) {
+        return ((long) pageId << 32) | (length & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,13 @@
+package searchengine.services.index;
+
+@FunctionalInterface
+public interface PageMatchConsumer {
+    /**
+     * Метод обрабатывает очередную найденную страницу
+     *
+     * @param pageId идентификатор страницы
+     * @param score  релевантность страницы
+     * @return True, если поиск следует продолжить, False - если поиск следует прекратить
+     */
+    boolean accept(int pageId, double score);
+}
@@ -0,0 +1,4 @@
+package searchengine.services.index;
+
+public record PhraseTerm(int lemmaId, int offset) {
+}
@@ -0,0 +1,63 @@
+package searchengine.services.index;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.List;
+
+public class PositionCodec {
+    private static final int[] EMPTY = new int[0];
+
+    private PositionCodec() {
+    }
+
+    /**
+     * Метод кодирует возрастающий список позиций: сохраняются разности соседних позиций, каждая из которых
+     * записывается в формате varint (7 бит на байт, старший бит - признак продолжения)
+     *
+     * @param positions список позиций в порядке возрастания
+     * @return Закодированные позиции
+     */
+    public static byte[] encode(List<Integer> positions) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(positions.size() + 4);
+        int previous = 0;
+        for (int position : positions) {
+            int delta = position - previous;
+            previous = position;
+            while ((delta & ~0x7F) != 0) {
+                out.write((delta & 0x7F) | 0x80);
+                delta >>>= 7;
+            }
+            out.write(delta);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Метод декодирует позиции, закодированные методом {@link #encode(List)}
+     *
+     * @param bytes закодированные позиции (может быть null)
+     * @return Массив позиций в порядке возрастания
+     */
+    public static int[] decode(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            return EMPTY;
+        }
+        int[] positions = new int[bytes.length];
+        int count = 0;
+        int previous = 0;
+        int delta = 0;
+        int shift = 0;
+        for (byte b : bytes) {
+            delta |= (b & 0x7F) << shift;
+            if ((b & 0x80) != 0) {
+                shift += 7;
+                continue;
+            }
+            previous += delta;
+            positions[count++] = previous;
+            delta = 0;
+            shift = 0;
+        }
+        return Arrays.copyOf(positions, count);
+    }
+}
@@ -0,0 +1,237 @@
+package searchengine.services.index;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import searchengine.repositories.IndexRepository;
+import searchengine.repositories.projections.IndexPositionsProjection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+@Component
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class PositionalRanker {
+    private static final int CHUNK_SIZE = 500;  // Количество страниц, позиции лемм которых загружаются одним запросом
+    private static final int PROXIMITY_POOL_FACTOR = 4;  // Во сколько раз больше лучших страниц (по BM25)
+    // переранжируется с учетом близости лемм, чем требуется отобрать
+    private static final int MIN_PROXIMITY_POOL_SIZE = 100;
+    private static final double PROXIMITY_WEIGHT = 0.5d;  // Максимальная прибавка к релевантности за близость лемм
+
+    private final SearchIndex searchIndex;
+    private final IndexRepository indexRepository;
+
+    /**
+     * Метод ищет страницы, на которых встречаются все заданные леммы, с учетом их позиций на странице. Если заданы
+     * фразы, то отбираются только страницы, содержащие все фразы (каждая найденная страница проверяется); иначе
+     * с учетом близости лемм переранжируются только лучшие по BM25 страницы, а общее количество найденных страниц
+     * остается точным. Страницы, для которых позиции лемм не сохранены (проиндексированы без позиционного индекса),
+     * фразам не соответствуют и прибавку за близость лемм не получают
+     *
+     * @param lemmaIds            идентификаторы лемм одного сайта
+     * @param alternativeLemmaIds словарь Идентификатор леммы - Идентификаторы ее альтернатив (лемм, которыми
+     *                            исправлено слово запроса); позиции альтернатив учитываются как позиции самой леммы
+     * @param optionalLemmaIds    идентификаторы необязательных лемм, учитываемых только в релевантности BM25
+     * @param phrases             список фраз (каждая фраза - список лемм с их смещениями внутри фразы
+     *                            {@link PhraseTerm})
+     * @param topCount            количество отбираемых страниц
+     * @param after               курсор {@link SearchCursor}, после позиции которого отбираются страницы, либо null
+     * @param stopped             признак прекращения поиска (отмена либо истечение срока выполнения запроса); при
+     *                            прекращении возвращаются лучшие из уже проверенных страниц
+     * @return Объект {@link TopPages} с отобранными страницами
+     */
+    public TopPages findPages(List<Integer> lemmaIds, Map<Integer, List<Integer>> alternativeLemmaIds,
+                              List<Integer> optionalLemmaIds, List<List<PhraseTerm>> phrases, int topCount,
+                              SearchCursor after, BooleanSupplier stopped) {
+        return phrases.isEmpty() ?
+                findPagesByProximity(lemmaIds, alternativeLemmaIds, optionalLemmaIds, topCount, after, stopped) :
+                findPagesByPhrases(lemmaIds, alternativeLemmaIds, optionalLemmaIds, phrases, topCount, after,
+                        stopped);
+    }
+
+    private TopPages findPagesByPhrases(List<Integer> lemmaIds, Map<Integer, List<Integer>> alternativeLemmaIds,
+                                        List<Integer> optionalLemmaIds, List<List<PhraseTerm>> phrases,
+                                        int topCount, SearchCursor after, BooleanSupplier stopped) {
+        TopPagesCollector collector = new TopPagesCollector(topCount, after);
+        PageChunk chunk = new PageChunk();
+        // Порог не задается: релевантность каждой страницы нужна точной, т.к. часть страниц отсеется по фразам
+        searchIndex.findPages(lemmaIds, alternativeLemmaIds, optionalLemmaIds, () -> Double.NEGATIVE_INFINITY,
+                (pageId, score) -> {
+                    chunk.add(pageId, score);
+                    if (chunk.size == CHUNK_SIZE && !stopped.getAsBoolean()) {
+                        collectChunk(lemmaIds, alternativeLemmaIds, phrases, chunk, collector);
+                    }
+                    return !stopped.getAsBoolean();
+                });
+        if (chunk.size > 0 && !stopped.getAsBoolean()) {
+            collectChunk(lemmaIds, alternativeLemmaIds, phrases, chunk, collector);
+        }
+        return collector.toTopPages();
+    }
+
+    private TopPages findPagesByProximity(List<Integer> lemmaIds, Map<Integer, List<Integer>> alternativeLemmaIds,
+                                          List<Integer> optionalLemmaIds, int topCount, SearchCursor after,
+                                          BooleanSupplier stopped) {
+        // Переранжируемые страницы должны покрывать и уже выданные по курсору страницы
+        long depth = after == null ? topCount : (long) after.position() + topCount;
+        TopPagesCollector poolCollector = new TopPagesCollector((int) Math.min(Integer.MAX_VALUE,
+                Math.max(depth * PROXIMITY_POOL_FACTOR, MIN_PROXIMITY_POOL_SIZE)));
+        searchIndex.findPages(lemmaIds, alternativeLemmaIds, optionalLemmaIds, poolCollector::threshold,
+                (pageId, score) -> {
+                    poolCollector.collect(pageId, score);
+                    return !stopped.getAsBoolean();
+                });
+        TopPages pool = poolCollector.toTopPages();
+        TopPagesCollector collector = new TopPagesCollector(topCount, after);
+        PageChunk chunk = new PageChunk();
+        int reranked = 0;
+        for (int i = 0; i < pool.size() && !stopped.getAsBoolean(); i++) {
+            chunk.add(pool.pageIds()[i], pool.scores()[i]);
+            if (chunk.size == CHUNK_SIZE || i == pool.size() - 1) {
+                collectChunk(lemmaIds, alternativeLemmaIds, Collections.emptyList(), chunk, collector);
+                reranked = i + 1;
+            }
+        }
+        // Страницы пула, не переранжированные до прекращения поиска, отбираются с релевантностью BM25
+        for (int i = reranked; i < pool.size(); i++) {
+            collector.collect(pool.pageIds()[i], pool.scores()[i]);
+        }
+        TopPages topPages = collector.toTopPages();
+        return new TopPages(topPages.pageIds(), topPages.scores(), topPages.size(), pool.totalCount());
+    }
+
+    /**
+     * Метод загружает позиции лемм на страницах очередной порции, отбрасывает страницы, не содержащие фраз, и передает
+     * остальные страницы в коллектор с релевантностью, увеличенной с учетом близости лемм. Порция очищается
+     *
+     * @param lemmaIds            идентификаторы лемм
+     * @param alternativeLemmaIds словарь Идентификатор леммы - Идентификаторы ее альтернатив
+     * @param phrases             список фраз
+     * @param chunk               порция страниц с их релевантностью BM25
+     * @param collector           коллектор лучших страниц {@link TopPagesCollector}
+     */
+    private void collectChunk(List<Integer> lemmaIds, Map<Integer, List<Integer>> alternativeLemmaIds,
+                              List<List<PhraseTerm>> phrases, PageChunk chunk, TopPagesCollector collector) {
+        List<Integer> pageIds = new ArrayList<>(chunk.size);
+        for (int i = 0; i < chunk.size; i++) {
+            pageIds.add(chunk.pageIds[i]);
+        }
+        // Позиции альтернативы записываются как позиции леммы, вместо которой она ищется
+        Map<Integer, Integer> queryLemmaIds = new HashMap<>();
+        lemmaIds.forEach(lemmaId -> queryLemmaIds.put(lemmaId, lemmaId));
+        alternativeLemmaIds.forEach((lemmaId, alternatives) ->
+                alternatives.forEach(alternativeLemmaId -> queryLemmaIds.put(alternativeLemmaId, lemmaId)));
+        Map<Integer, Map<Integer, int[]>> positions = new HashMap<>();
+        for (IndexPositionsProjection projection : indexRepository.findPositionsByLemmaIdInAndPageIdIn(
+                queryLemmaIds.keySet(), pageIds)) {
+            positions.computeIfAbsent(projection.getPageId(), pageId -> new HashMap<>())
+                    .merge(queryLemmaIds.get(projection.getLemmaId()),
+                            PositionCodec.decode(projection.getPositions()), PositionalRanker::mergePositions);
+        }
+        for (int i = 0; i < chunk.size; i++) {
+            Map<Integer, int[]> pagePositions = positions.getOrDefault(chunk.pageIds[i], Collections.emptyMap());
+            if (phrases.stream().allMatch(phrase -> containsPhrase(phrase, pagePositions))) {
+                collector.collect(chunk.pageIds[i], chunk.scores[i] * proximityBoost(lemmaIds, pagePositions));
+            }
+        }
+        chunk.size = 0;
+    }
+
+    private static int[] mergePositions(int[] positions, int[] otherPositions) {
+        int[] merged = Arrays.copyOf(positions, positions.length + otherPositions.length);
+        System.arraycopy(otherPositions, 0, merged, positions.length, otherPositions.length);
+        Arrays.sort(merged);
+        return merged;
+    }
+
+    /**
+     * Метод проверяет, встречается ли на странице фраза (все леммы фразы на позициях с заданными смещениями
+     * относительно начала фразы)
+     *
+     * @param phrase        фраза (список лемм с их смещениями внутри фразы)
+     * @param pagePositions словарь Идентификатор леммы - Позиции леммы на странице
+     * @return True, если фраза найдена
+     */
+    private static boolean containsPhrase(List<PhraseTerm> phrase, Map<Integer, int[]> pagePositions) {
+        PhraseTerm anchor = null;
+        for (PhraseTerm term : phrase) {
+            int[] termPositions = pagePositions.get(term.lemmaId());
+            if (termPositions == null || termPositions.length == 0) {
+                return false;
+            }
+            if (anchor == null || termPositions.length < pagePositions.get(anchor.lemmaId()).length) {
+                anchor = term;
+            }
+        }
+        if (anchor == null) {
+            return true;
+        }
+        candidates:
+        for (int anchorPosition : pagePositions.get(anchor.lemmaId())) {
+            int start = anchorPosition - anchor.offset();
+            for (PhraseTerm term : phrase) {
+                if (Arrays.binarySearch(pagePositions.get(term.lemmaId()), start + term.offset()) < 0) {
+                    continue candidates;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Метод вычисляет множитель релевантности за близость лемм: находится наименьший фрагмент страницы, содержащий
+     * все леммы, и чем он короче, тем больше множитель (от 1 до 1 + PROXIMITY_WEIGHT, если леммы идут подряд)
+     *
+     * @param lemmaIds      идентификаторы лемм
+     * @param pagePositions словарь Идентификатор леммы - Позиции леммы на странице
+     * @return Множитель релевантности (1, если лемма одна либо позиции лемм не сохранены)
+     */
+    private static double proximityBoost(List<Integer> lemmaIds, Map<Integer, int[]> pagePositions) {
+        int n = lemmaIds.size();
+        if (n < 2) {
+            return 1d;
+        }
+        int[][] lists = new int[n][];
+        for (int j = 0; j < n; j++) {
+            lists[j] = pagePositions.get(lemmaIds.get(j));
+            if (lists[j] == null || lists[j].length == 0) {
+                return 1d;
+            }
+        }
+        int[] cursors = new int[n];
+        int minSpan = Integer.MAX_VALUE;
+        while (true) {
+            int minList = 0;
+            int max = Integer.MIN_VALUE;
+            for (int j = 0; j < n; j++) {
+                int position = lists[j][cursors[j]];
+                if (position < lists[minList][cursors[minList]]) {
+                    minList = j;
+                }
+                max = Math.max(max, position);
+            }
+            minSpan = Math.min(minSpan, max - lists[minList][cursors[minList]]);
+            if (++cursors[minList] == lists[minList].length) {
+                break;
+            }
+        }
+        return 1d + PROXIMITY_WEIGHT * (n - 1) / Math.max(minSpan, n - 1);
+    }
+
+    private static class PageChunk {
+        private final int[] pageIds = new int[CHUNK_SIZE];
+        private final double[] scores = new double[CHUNK_SIZE];
+        private int size = 0;
+
+        private void add(int pageId, double score) {
+            pageIds[size] = pageId;
+            scores[size++] = score;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package searchengine.services.index;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+
+public class PostingList {
+    private static final int INITIAL_CAPACITY = 4;
+    private static final int MAX_QUANTIZED_RANK = Character.MAX_VALUE;
+
+    @Getter
+    private final int siteId;
+    private int[] pageIds = new int[INITIAL_CAPACITY];
+    private char[] ranks = new char[INITIAL_CAPACITY];
+    private int size = 0;
+    private char maxRank = 0;
+    private int minDocLength = Integer.MAX_VALUE;
+
+    public PostingList(int siteId) {
+        this.siteId = siteId;
+    }
+
+    /**
+     * Метод добавляет (либо заменяет) в списке запись о странице. Страницы индексируются в порядке возрастания их
+     * идентификаторов, поэтому в подавляющем большинстве случаев запись просто дописывается в конец массивов,
+     * не затрагивая уже выданные читателям снимки {@link Postings}
+     *
+     * Одновременно обновляются максимальное количество вхождений леммы и минимальная длина страницы, по которым
+     * оценивается максимально возможный вклад леммы в релевантность (при удалении страниц оценки не уменьшаются,
+     * оставаясь верхними границами)
+     *
+     * @param pageId    идентификатор страницы
+     * @param rank      количество вхождений леммы на странице
+     * @param docLength длина страницы (в леммах)
+     */
+    public synchronized void add(int pageId, float rank, int docLength) {
+        char quantizedRank = quantize(rank);
+        maxRank = (char) Math.max(maxRank, quantizedRank);
+        minDocLength = Math.min(minDocLength, docLength);
+        if (size == 0 || pageId > pageIds[size - 1]) {
+            if (size == pageIds.length) {
+                pageIds = Arrays.copyOf(pageIds, size * 2);
+                ranks = Arrays.copyOf(ranks, size * 2);
+            }
+            pageIds[size] = pageId;
+            ranks[size] = quantizedRank;
+            size++;
+            return;
+        }
+        int position = Arrays.binarySearch(pageIds, 0, size, pageId);
+        if (position >= 0) {
+            ranks[position] = quantizedRank;
+            return;
+        }
+        // Вставка в середину: создаем новые массивы, чтобы не менять данные уже выданных снимков
+        position = -position - 1;
+        int[] newPageIds = new int[Math.max(size + 1, pageIds.length)];
+        char[] newRanks = new char[newPageIds.length];
+        System.arraycopy(pageIds, 0, newPageIds, 0, position);
+        System.arraycopy(ranks, 0, newRanks, 0, position);
+        newPageIds[position] = pageId;
+        newRanks[position] = quantizedRank;
+        System.arraycopy(pageIds, position, newPageIds, position + 1, size - position);
+        System.arraycopy(ranks, position, newRanks, position + 1, size - position);
+        pageIds = newPageIds;
+        ranks = newRanks;
+        size++;
+    }
+
+    /**
+     * Метод удаляет из списка запись о странице
+     *
+     * @param pageId идентификатор страницы
+     * @return True, если запись была найдена и удалена
+     */
+    public synchronized boolean remove(int pageId) {
+        int position = Arrays.binarySearch(pageIds, 0, size, pageId);
+        if (position < 0) {
+            return false;
+        }
+        int[] newPageIds = new int[pageIds.length];
+        char[] newRanks = new char[ranks.length];
+        System.arraycopy(pageIds, 0, newPageIds, 0, position);
+        System.arraycopy(ranks, 0, newRanks, 0, position);
+        System.arraycopy(pageIds, position + 1, newPageIds, position, size - position - 1);
+        System.arraycopy(ranks, position + 1, newRanks, position, size - position - 1);
+        pageIds = newPageIds;
+        ranks = newRanks;
+        size--;
+        return true;
+    }
+
+    /**
+     * Метод упорядочивает записи по возрастанию идентификаторов страниц (используется после первичной загрузки
+     * индекса из БД, где порядок записей не гарантирован)
+     */
+    public synchronized void sort() {
+        for (int i = 1; i < size; i++) {
+            if (pageIds[i - 1] >= pageIds[i]) {
+                sortPairs();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Метод возвращает неизменяемый снимок текущего состояния списка
+     *
+     * @return Снимок {@link Postings}
+     */
+    public synchronized Postings snapshot() {
+        return new Postings(pageIds, ranks, size, maxRank, minDocLength);
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private void sortPairs() {
+        long[] pairs = new long[size];
+        for (int i = 0; i < size; i++) {
+            pairs[i] = ((long) pageIds[i] << 16) | ranks[i];
+        }
+        Arrays.sort(pairs);
+        int[] newPageIds = new int[pageIds.length];
+        char[] newRanks = new char[ranks.length];
+        int newSize = 0;
+        for (long pair : pairs) {
+            int pageId = (int) (pair >>> 16);
+            if (newSize > 0 && newPageIds[newSize - 1] == pageId) {
+                newRanks[newSize - 1] = (char) pair;
+                continue;
+            }
+            newPageIds[newSize] = pageId;
+            newRanks[newSize] = (char) pair;
+            newSize++;
+        }
+        pageIds = newPageIds;
+        ranks = newRanks;
+        size = newSize;
+    }
+
+    private static char quantize(float rank) {
+        return (char) Math.max(0, Math.min(MAX_QUANTIZED_RANK, Math.round(rank)));
+    }
+}
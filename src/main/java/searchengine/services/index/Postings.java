@@ -0,0 +1,48 @@
+package searchengine.services.index;
+
+public record Postings(int[] pageIds, char[] ranks, int size, int maxRank, int minDocLength) {
+
+    public int pageId(int position) {
+        return pageIds[position];
+    }
+
+    public int rank(int position) {
+        return ranks[position];
+    }
+
+    /**
+     * Метод ищет (галопирующим поиском, начиная с позиции from) первую позицию, идентификатор страницы в которой
+     * не меньше заданного
+     *
+     * @param from   позиция, с которой начинается поиск
+     * @param pageId искомый идентификатор страницы
+     * @return Найденная позиция, либо size, если такой позиции нет
+     */
+    public int advance(int from, int pageId) {
+        if (from >= size || pageIds[from] >= pageId) {
+            return from;
+        }
+        int low = from;
+        int step = 1;
+        int high = from + step;
+        while (high < size && pageIds[high] < pageId) {
+            low = high;
+            step <<= 1;
+            high = from + step;
+        }
+        high = Math.min(high, size - 1);
+        if (pageIds[high] < pageId) {
+            return size;
+        }
+        // Инвариант: pageIds[low] < pageId <= pageIds[high]
+        while (high - low > 1) {
+            int middle = (low + high) >>> 1;
+            if (pageIds[middle] < pageId) {
+                low = middle;
+            } else {
+                high = middle;
+            }
+        }
+        return high;
+    }
+}
@@ -0,0 +1,8 @@
+package searchengine.services.index;
+
+import java.util.List;
+import java.util.Map;
+
+public record SearchCacheKey(List<String> lemmas, Map<String, List<String>> lemmaAlternatives,
+                             List<Map<String, List<Integer>>> phrases, Integer siteId) {
+}
@@ -0,0 +1,58 @@
+package searchengine.services.index;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Позиция в результатах поиска, после которой продолжается постраничный вывод: последняя выданная страница
+ * (релевантность и идентификатор), количество уже выданных страниц, поколение индекса и хэш запроса
+ */
+public record SearchCursor(int queryHash, long generation, int position, double score, int pageId) {
+
+    /**
+     * Метод проверяет, следует ли страница в результатах поиска после позиции курсора (т.е. имеет меньшую
+     * релевантность, либо такую же релевантность и больший идентификатор)
+     *
+     * @param pageId идентификатор страницы
+     * @param score  релевантность страницы
+     * @return True, если страница следует после позиции курсора
+     */
+    public boolean precedes(int pageId, double score) {
+        int cmp = Double.compare(score, this.score);
+        return cmp < 0 || (cmp == 0 && pageId > this.pageId);
+    }
+
+    /**
+     * Метод кодирует курсор в непрозрачную для пользователя строку
+     *
+     * @return Строка курсора (Base64, допустимая в URL)
+     */
+    public String encode() {
+        String value = queryHash + ":" + generation + ":" + position + ":" +
+                Long.toHexString(Double.doubleToLongBits(score)) + ":" + pageId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Метод декодирует строку курсора, полученную методом {@link #encode()}
+     *
+     * @param cursor строка курсора
+     * @return Курсор {@link SearchCursor}, либо null, если строка некорректна
+     */
+    public static SearchCursor decode(String cursor) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":");
+            if (parts.length != 5) {
+                return null;
+            }
+            int position = Integer.parseInt(parts[2]);
+            if (position < 1) {
+                return null;
+            }
+            return new SearchCursor(Integer.parseInt(parts[0]), Long.parseLong(parts[1]), position,
+                    Double.longBitsToDouble(Long.parseUnsignedLong(parts[3], 16)), Integer.parseInt(parts[4]));
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package searchengine.services.index;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Срок выполнения поискового запроса. Этапы поиска периодически проверяют его и при истечении срока прекращают
+ * работу, возвращая лучшие из уже найденных результатов
+ */
+public class SearchDeadline {
+    private final boolean limited;
+    private final long deadlineNanos;
+    private volatile boolean expired = false;
+
+    /**
+     * Конструктор срока выполнения запроса
+     *
+     * @param budgetMs отведенное на запрос время в миллисекундах (0 - без ограничения)
+     */
+    public SearchDeadline(long budgetMs) {
+        limited = budgetMs > 0;
+        deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(budgetMs, 0));
+    }
+
+    /**
+     * Метод проверяет, истек ли срок выполнения запроса (однажды истекший срок остается истекшим)
+     *
+     * @return True, если срок истек
+     */
+    public boolean isExpired() {
+        if (!expired && limited && System.nanoTime() - deadlineNanos >= 0) {
+            expired = true;
+        }
+        return expired;
+    }
+
+    /**
+     * Метод сообщает, обнаруживала ли какая-либо из проверок истечение срока (т.е. был ли прерван хотя бы один
+     * этап поиска), не проверяя время заново
+     *
+     * @return True, если срок истек при выполнении запроса
+     */
+    public boolean wasExpired() {
+        return expired;
+    }
+}
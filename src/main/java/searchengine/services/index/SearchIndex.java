@@ -0,0 +1,404 @@
+package searchengine.services.index;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import searchengine.config.SearchMode;
+import searchengine.config.SearchSettings;
+import searchengine.model.SiteEntity;
+import searchengine.repositories.IndexRepository;
+import searchengine.repositories.PageRepository;
+import searchengine.repositories.SiteRepository;
+import searchengine.repositories.projections.IndexPostingProjection;
+import searchengine.repositories.projections.PageLengthProjection;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleSupplier;
+
+@Log4j2
+@Service
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class SearchIndex {
+    private static final int LOAD_BATCH_SIZE = 10000;
+    private static final PageLengths NO_PAGE_LENGTHS = new PageLengths();
+
+    private final IndexRepository indexRepository;
+    private final PageRepository pageRepository;
+    private final SiteRepository siteRepository;
+    private final SearchSettings searchSettings;
+    private final Map<Integer, PostingList> postingLists = new ConcurrentHashMap<>();
+    private final Map<Integer, SiteStatistics> siteStatistics = new ConcurrentHashMap<>();
+    private final Map<Integer, PageLengths> sitePageLengths = new ConcurrentHashMap<>();
+    private final Map<Integer, AtomicLong> siteGenerations = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Метод при запуске приложения загружает в память инвертированный индекс (лемма - список страниц)
+     * из таблицы index, а также длины страниц и статистику сайтов, необходимые для ранжирования BM25. В режиме
+     * поиска запросами к БД индекс в память не загружается, а лишь отслеживаются поколения индекса
+     */
+    @PostConstruct
+    public void load() {
+        if (!isInMemory()) {
+            log.info("Поисковый индекс не загружается в память: поиск выполняется запросами к БД");
+            return;
+        }
+        long startTimeMillis = System.currentTimeMillis();
+        for (SiteEntity siteEntity : siteRepository.findAll()) {
+            siteStatistics.put(siteEntity.getId(),
+                    new SiteStatistics(siteEntity.getDocCount(), siteEntity.getTokenCount()));
+        }
+        int lastPageId = 0;
+        List<PageLengthProjection> pageLengths;
+        do {
+            pageLengths = pageRepository.findLengthsAfterId(lastPageId, PageRequest.of(0, LOAD_BATCH_SIZE));
+            for (PageLengthProjection pageLength : pageLengths) {
+                getPageLengths(pageLength.getSiteId()).put(pageLength.getId(), pageLength.getTokenCount());
+                lastPageId = pageLength.getId();
+            }
+        } while (pageLengths.size() == LOAD_BATCH_SIZE);
+        long count = 0;
+        int lastId = 0;
+        List<IndexPostingProjection> postings;
+        do {
+            postings = indexRepository.findPostingsAfterId(lastId, PageRequest.of(0, LOAD_BATCH_SIZE));
+            for (IndexPostingProjection posting : postings) {
+                postingLists.computeIfAbsent(posting.getLemmaId(), lemmaId -> new PostingList(posting.getSiteId()))
+                        .add(posting.getPageId(), posting.getRank(),
+                                getPageLengths(posting.getSiteId()).get(posting.getPageId()));
+                lastId = posting.getId();
+            }
+            count += postings.size();
+        } while (postings.size() == LOAD_BATCH_SIZE);
+        postingLists.values().forEach(PostingList::sort);
+        log.info("Поисковый индекс загружен: " + postingLists.size() + " лемм, " + count + " записей за " +
+                (System.currentTimeMillis() - startTimeMillis) + " мс");
+    }
+
+    /**
+     * Метод добавляет в индекс проиндексированную страницу
+     *
+     * @param siteId     идентификатор сайта
+     * @param pageId     идентификатор страницы
+     * @param tokenCount длина страницы (в леммах)
+     * @param lemmaRanks словарь Идентификатор леммы - Количество вхождений леммы на странице
+     */
+    public void addPage(int siteId, int pageId, int tokenCount, Map<Integer, Float> lemmaRanks) {
+        if (!isInMemory()) {
+            incrementGeneration(siteId);
+            return;
+        }
+        getPageLengths(siteId).put(pageId, tokenCount);
+        lemmaRanks.forEach((lemmaId, rank) -> postingLists
+                .computeIfAbsent(lemmaId, id -> new PostingList(siteId))
+                .add(pageId, rank, tokenCount));
+        getSiteStatistics(siteId).add(1, tokenCount);
+        incrementGeneration(siteId);
+    }
+
+    /**
+     * Метод удаляет из индекса страницу
+     *
+     * @param siteId     идентификатор сайта
+     * @param pageId     идентификатор страницы
+     * @param tokenCount длина страницы (в леммах)
+     * @param lemmaIds   идентификаторы лемм, встречающихся на странице
+     */
+    public void removePage(int siteId, int pageId, int tokenCount, Collection<Integer> lemmaIds) {
+        if (!isInMemory()) {
+            incrementGeneration(siteId);
+            return;
+        }
+        for (Integer lemmaId : lemmaIds) {
+            PostingList postingList = postingLists.get(lemmaId);
+            if (postingList != null) {
+                postingList.remove(pageId);
+            }
+        }
+        getPageLengths(siteId).remove(pageId);
+        getSiteStatistics(siteId).add(-1, -tokenCount);
+        incrementGeneration(siteId);
+    }
+
+    /**
+     * Метод удаляет из индекса все леммы и длины страниц заданного сайта
+     *
+     * @param siteId идентификатор сайта
+     */
+    public void removeSite(int siteId) {
+        postingLists.values().removeIf(postingList -> postingList.getSiteId() == siteId);
+        siteStatistics.remove(siteId);
+        sitePageLengths.remove(siteId);
+        incrementGeneration(siteId);
+    }
+
+    /**
+     * Метод отмечает изменение состава активных сайтов (активацию поколения сайта): результаты поиска по всем сайтам
+     * и курсоры, полученные до активации, становятся неактуальными, даже если у сайта не было предыдущего поколения
+     *
+     * @param siteId идентификатор активированного поколения сайта
+     */
+    public void activateSite(int siteId) {
+        incrementGeneration(siteId);
+    }
+
+    /**
+     * Метод возвращает текущее поколение индекса сайта (либо всех сайтов). Поколение увеличивается при каждом
+     * изменении индекса и используется для проверки актуальности сохраненных результатов поиска
+     *
+     * @param siteId идентификатор сайта, либо null для поколения индекса всех сайтов
+     * @return Номер поколения
+     */
+    public long getGeneration(Integer siteId) {
+        if (siteId == null) {
+            return generation.get();
+        }
+        AtomicLong siteGeneration = siteGenerations.get(siteId);
+        return siteGeneration == null ? 0L : siteGeneration.get();
+    }
+
+    /**
+     * Метод проверяет, загружается ли индекс в память (режим поиска {@link SearchMode#MEMORY})
+     *
+     * @return True, если поиск выполняется по загруженному в память индексу
+     */
+    public boolean isInMemory() {
+        return searchSettings.getMode() == SearchMode.MEMORY;
+    }
+
+    private void incrementGeneration(int siteId) {
+        siteGenerations.computeIfAbsent(siteId, id -> new AtomicLong()).incrementAndGet();
+        generation.incrementAndGet();
+    }
+
+    /**
+     * Метод ищет страницы, на которых встречаются все заданные леммы, пересекая списки страниц галопирующим
+     * поиском (начиная с самого короткого списка), и передает каждую найденную страницу с ее релевантностью BM25
+     * обработчику
+     *
+     * @param lemmaIds идентификаторы лемм одного сайта
+     * @param consumer обработчик найденных страниц {@link PageMatchConsumer} (страницы передаются в порядке
+     *                 возрастания их идентификаторов); поиск прекращается, если обработчик вернул False
+     */
+    public void findPages(Collection<Integer> lemmaIds, PageMatchConsumer consumer) {
+        findPages(lemmaIds, Collections.emptyMap(), Collections.emptyList(), () -> Double.NEGATIVE_INFINITY,
+                consumer);
+    }
+
+    /**
+     * Метод ищет страницы, на которых встречаются все обязательные леммы, и передает каждую найденную страницу
+     * с ее релевантностью BM25 обработчику. Необязательные (часто встречающиеся) леммы страницы не отбирают, а лишь
+     * увеличивают их релевантность. Их списки страниц просматриваются по алгоритму MaxScore: если даже с максимально
+     * возможным вкладом оставшихся необязательных лемм страница не превысит порог (релевантность худшей из
+     * отобранных страниц), то эти леммы на странице не ищутся, а обработчику передается заниженная релевантность,
+     * заведомо не позволяющая странице попасть в число лучших. У обязательной леммы могут быть альтернативы (леммы,
+     * которыми исправлено слово запроса с опечаткой): их списки страниц объединяются со списком леммы, и слово
+     * считается найденным на странице, если на ней есть любая из этих лемм
+     *
+     * @param lemmaIds            идентификаторы обязательных лемм одного сайта
+     * @param alternativeLemmaIds словарь Идентификатор обязательной леммы - Идентификаторы ее альтернатив
+     * @param optionalLemmaIds    идентификаторы необязательных лемм того же сайта
+     * @param threshold           порог релевантности, ниже которого страницы не нужны обработчику (запрашивается
+     *                            перед оценкой каждой страницы)
+     * @param consumer            обработчик найденных страниц {@link PageMatchConsumer} (страницы передаются
+     *                            в порядке возрастания их идентификаторов); поиск прекращается, если обработчик
+     *                            вернул False
+     */
+    public void findPages(Collection<Integer> lemmaIds, Map<Integer, List<Integer>> alternativeLemmaIds,
+                          Collection<Integer> optionalLemmaIds, DoubleSupplier threshold,
+                          PageMatchConsumer consumer) {
+        if (lemmaIds.isEmpty()) {
+            return;
+        }
+        Postings[] lists = new Postings[lemmaIds.size()];
+        int n = 0;
+        int siteId = 0;
+        for (Integer lemmaId : lemmaIds) {
+            PostingList postingList = postingLists.get(lemmaId);
+            if (postingList == null) {
+                return;
+            }
+            List<Postings> alternatives = new ArrayList<>();
+            alternatives.add(postingList.snapshot());
+            for (Integer alternativeLemmaId : alternativeLemmaIds.getOrDefault(lemmaId, Collections.emptyList())) {
+                PostingList alternativeList = postingLists.get(alternativeLemmaId);
+                if (alternativeList != null) {
+                    alternatives.add(alternativeList.snapshot());
+                }
+            }
+            lists[n++] = alternatives.size() == 1 ? alternatives.get(0) : union(alternatives);
+            siteId = postingList.getSiteId();
+        }
+        Arrays.sort(lists, Comparator.comparingInt(Postings::size));
+        List<Postings> optionalPostings = new ArrayList<>();
+        for (Integer lemmaId : optionalLemmaIds) {
+            PostingList postingList = postingLists.get(lemmaId);
+            if (postingList != null) {
+                optionalPostings.add(postingList.snapshot());
+            }
+        }
+
+        SiteStatistics statistics = getSiteStatistics(siteId);
+        int docCount = Math.max(statistics.getDocCount(), lists[lists.length - 1].size());
+        for (Postings postings : optionalPostings) {
+            docCount = Math.max(docCount, postings.size());
+        }
+        double averageLength = statistics.getAverageLength();
+        double[] idfs = new double[lists.length];
+        for (int j = 0; j < lists.length; j++) {
+            idfs[j] = Bm25.idf(docCount, lists[j].size());
+        }
+        OptionalTerms optionalTerms = new OptionalTerms(optionalPostings, docCount, averageLength);
+        PageLengths pageLengths = sitePageLengths.getOrDefault(siteId, NO_PAGE_LENGTHS);
+
+        Postings shortest = lists[0];
+        int[] positions = new int[lists.length];
+        candidates:
+        for (int i = 0; i < shortest.size(); i++) {
+            int pageId = shortest.pageId(i);
+            positions[0] = i;
+            for (int j = 1; j < lists.length; j++) {
+                Postings postings = lists[j];
+                int position = postings.advance(positions[j], pageId);
+                positions[j] = position;
+                if (position == postings.size()) {
+                    return;
+                }
+                if (postings.pageId(position) != pageId) {
+                    continue candidates;
+                }
+            }
+            double lengthNorm = Bm25.lengthNorm(pageLengths.get(pageId), averageLength);
+            double score = 0d;
+            for (int j = 0; j < lists.length; j++) {
+                score += Bm25.score(idfs[j], lists[j].rank(positions[j]), lengthNorm);
+            }
+            if (optionalTerms.size > 0) {
+                score = optionalTerms.addScores(pageId, score, lengthNorm, threshold.getAsDouble());
+            }
+            if (!consumer.accept(pageId, score)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Метод объединяет списки страниц нескольких лемм в один список (как у одной леммы-синонима): в него входят
+     * страницы, на которых есть хотя бы одна из лемм, а количество вхождений на странице равно сумме вхождений лемм
+     *
+     * @param lists списки страниц {@link Postings}
+     * @return Объединенный список страниц
+     */
+    static Postings union(List<Postings> lists) {
+        Postings result = lists.get(0);
+        for (int k = 1; k < lists.size(); k++) {
+            Postings other = lists.get(k);
+            int[] pageIds = new int[result.size() + other.size()];
+            char[] ranks = new char[pageIds.length];
+            int size = 0;
+            int maxRank = 0;
+            int i = 0;
+            int j = 0;
+            while (i < result.size() || j < other.size()) {
+                int pageId;
+                int rank;
+                if (j == other.size() || (i < result.size() && result.pageId(i) < other.pageId(j))) {
+                    pageId = result.pageId(i);
+                    rank = result.rank(i++);
+                } else if (i == result.size() || other.pageId(j) < result.pageId(i)) {
+                    pageId = other.pageId(j);
+                    rank = other.rank(j++);
+                } else {
+                    pageId = result.pageId(i);
+                    rank = Math.min(result.rank(i++) + other.rank(j++), Character.MAX_VALUE);
+                }
+                pageIds[size] = pageId;
+                ranks[size++] = (char) rank;
+                maxRank = Math.max(maxRank, rank);
+            }
+            result = new Postings(pageIds, ranks, size, maxRank, Math.min(result.minDocLength(),
+                    other.minDocLength()));
+        }
+        return result;
+    }
+
+    /**
+     * Необязательные леммы запроса, упорядоченные по убыванию верхней границы их вклада в релевантность
+     */
+    private static class OptionalTerms {
+        private final int size;
+        private final Postings[] lists;
+        private final double[] idfs;
+        private final double[] upperBounds;
+        private final int[] positions;
+        private final double upperBoundSum;
+
+        private OptionalTerms(List<Postings> postings, int docCount, double averageLength) {
+            size = postings.size();
+            lists = new Postings[size];
+            idfs = new double[size];
+            upperBounds = new double[size];
+            positions = new int[size];
+            double[] bounds = postings.stream()
+                    .mapToDouble(list -> Bm25.upperBound(Bm25.idf(docCount, list.size()), list.maxRank(),
+                            list.minDocLength(), averageLength))
+                    .toArray();
+            Integer[] order = new Integer[size];
+            for (int j = 0; j < size; j++) {
+                order[j] = j;
+            }
+            Arrays.sort(order, (a, b) -> Double.compare(bounds[b], bounds[a]));
+            double sum = 0d;
+            for (int j = 0; j < size; j++) {
+                lists[j] = postings.get(order[j]);
+                idfs[j] = Bm25.idf(docCount, lists[j].size());
+                upperBounds[j] = bounds[order[j]];
+                sum += upperBounds[j];
+            }
+            upperBoundSum = sum;
+        }
+
+        /**
+         * Метод добавляет к релевантности страницы вклад необязательных лемм, прекращая поиск лемм на странице, как
+         * только оставшийся возможный вклад не позволяет превысить порог
+         *
+         * @param pageId     идентификатор страницы (страницы передаются в порядке возрастания идентификаторов)
+         * @param score      релевантность страницы по обязательным леммам
+         * @param lengthNorm нормирующая добавка, зависящая от длины страницы
+         * @param threshold  порог релевантности
+         * @return Релевантность страницы
+         */
+        private double addScores(int pageId, double score, double lengthNorm, double threshold) {
+            double remaining = upperBoundSum;
+            for (int j = 0; j < size && score + remaining > threshold; j++) {
+                Postings postings = lists[j];
+                int position = postings.advance(positions[j], pageId);
+                positions[j] = position;
+                if (position < postings.size() && postings.pageId(position) == pageId) {
+                    score += Bm25.score(idfs[j], postings.rank(position), lengthNorm);
+                }
+                remaining -= upperBounds[j];
+            }
+            return score;
+        }
+    }
+
+    private SiteStatistics getSiteStatistics(int siteId) {
+        return siteStatistics.computeIfAbsent(siteId, id -> new SiteStatistics(0, 0L));
+    }
+
+    private PageLengths getPageLengths(int siteId) {
+        return sitePageLengths.computeIfAbsent(siteId, id -> new PageLengths());
+    }
+}
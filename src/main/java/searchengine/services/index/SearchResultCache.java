@@ -0,0 +1,92 @@
+package searchengine.services.index;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import searchengine.config.SearchSettings;
+import searchengine.dto.statistics.CacheStatistics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Component
+public class SearchResultCache {
+    private final int capacity;
+    private final Map<SearchCacheKey, CachedSearch> entries;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+    private long invalidations = 0;
+
+    @Autowired
+    public SearchResultCache(SearchSettings searchSettings) {
+        capacity = Math.max(searchSettings.getResultCacheSize(), 0);
+        entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<SearchCacheKey, CachedSearch> eldest) {
+                if (size() > capacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Метод ищет в кэше результат поиска. Результат считается устаревшим, если с момента его сохранения изменилось
+     * поколение индекса (сайта либо всех сайтов), и удаляется из кэша
+     *
+     * @param key        ключ (отсортированные леммы запроса и идентификатор сайта)
+     * @param generation текущее поколение индекса {@link SearchIndex#getGeneration(Integer)}
+     * @param topCount   требуемое количество лучших страниц (offset + limit)
+     * @return Сохраненный результат {@link CachedSearch}, либо null, если подходящего результата в кэше нет
+     */
+    public synchronized CachedSearch get(SearchCacheKey key, long generation, int topCount) {
+        CachedSearch cachedSearch = entries.get(key);
+        if (cachedSearch == null) {
+            misses++;
+            return null;
+        }
+        if (cachedSearch.generation() != generation) {
+            entries.remove(key);
+            invalidations++;
+            misses++;
+            return null;
+        }
+        TopPages topPages = cachedSearch.topPages();
+        if (topPages.size() < topCount && topPages.size() < topPages.totalCount()) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return cachedSearch;
+    }
+
+    /**
+     * Метод сохраняет в кэше результат поиска, при переполнении вытесняя давно не использованные результаты
+     *
+     * @param key          ключ (отсортированные леммы запроса и идентификатор сайта)
+     * @param cachedSearch результат поиска {@link CachedSearch}
+     */
+    public synchronized void put(SearchCacheKey key, CachedSearch cachedSearch) {
+        if (capacity > 0) {
+            entries.put(key, cachedSearch);
+        }
+    }
+
+    /**
+     * Метод формирует статистику использования кэша
+     *
+     * @return Объект {@link CacheStatistics}
+     */
+    public synchronized CacheStatistics getStatistics() {
+        CacheStatistics statistics = new CacheStatistics();
+        statistics.setSize(entries.size());
+        statistics.setCapacity(capacity);
+        statistics.setHits(hits);
+        statistics.setMisses(misses);
+        statistics.setEvictions(evictions);
+        statistics.setInvalidations(invalidations);
+        return statistics;
+    }
+}
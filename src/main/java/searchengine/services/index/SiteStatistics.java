@@ -0,0 +1,33 @@
+package searchengine.services.index;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SiteStatistics {
+    private final AtomicInteger docCount;
+    private final AtomicLong tokenCount;
+
+    public SiteStatistics(int docCount, long tokenCount) {
+        this.docCount = new AtomicInteger(docCount);
+        this.tokenCount = new AtomicLong(tokenCount);
+    }
+
+    public void add(int docCountDelta, long tokenCountDelta) {
+        docCount.addAndGet(docCountDelta);
+        tokenCount.addAndGet(tokenCountDelta);
+    }
+
+    public int getDocCount() {
+        return docCount.get();
+    }
+
+    /**
+     * Метод вычисляет среднюю длину (в леммах) проиндексированной страницы сайта
+     *
+     * @return Средняя длина страницы, либо 0, если на сайте нет проиндексированных страниц
+     */
+    public double getAverageLength() {
+        int count = docCount.get();
+        return count <= 0 ? 0d : (double) tokenCount.get() / count;
+    }
+}
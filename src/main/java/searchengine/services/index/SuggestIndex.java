@@ -0,0 +1,106 @@
+package searchengine.services.index;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import searchengine.model.SiteEntity;
+import searchengine.repositories.LemmaRepository;
+import searchengine.repositories.SiteRepository;
+import searchengine.repositories.projections.LemmaFrequencyProjection;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Log4j2
+@Service
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class SuggestIndex {
+    private final LemmaRepository lemmaRepository;
+    private final SiteRepository siteRepository;
+    private final Map<Integer, LemmaDictionary> siteDictionaries = new ConcurrentHashMap<>();
+    private final Map<String, Integer> activeSiteIds = new ConcurrentHashMap<>();
+    private volatile LemmaDictionary globalDictionary = LemmaDictionary.EMPTY;
+
+    /**
+     * Метод при запуске приложения строит словари лемм всех активных сайтов и общий словарь, а также запоминает
+     * идентификаторы активных поколений сайтов
+     */
+    @PostConstruct
+    public void load() {
+        long startTimeMillis = System.currentTimeMillis();
+        for (SiteEntity siteEntity : siteRepository.findAllByActiveTrue()) {
+            activeSiteIds.put(siteEntity.getUrl(), siteEntity.getId());
+            siteDictionaries.put(siteEntity.getId(), loadSiteDictionary(siteEntity.getId()));
+        }
+        rebuildGlobalDictionary();
+        log.info("Словарь лемм построен: " + globalDictionary.size() + " лемм за " +
+                (System.currentTimeMillis() - startTimeMillis) + " мс");
+    }
+
+    /**
+     * Метод перестраивает словарь лемм сайта (после завершения его индексации) и общий словарь. Общий словарь
+     * строится слиянием словарей сайтов, без обращения к БД
+     *
+     * @param siteId идентификатор сайта
+     */
+    public synchronized void rebuildSite(int siteId) {
+        siteDictionaries.put(siteId, loadSiteDictionary(siteId));
+        rebuildGlobalDictionary();
+    }
+
+    /**
+     * Метод запоминает активное поколение сайта (при добавлении активного сайта или активации нового поколения),
+     * чтобы идентификатор сайта по его адресу определялся без обращения к БД
+     *
+     * @param url    адрес сайта
+     * @param siteId идентификатор активного поколения сайта
+     */
+    public void putActiveSite(String url, int siteId) {
+        activeSiteIds.put(url, siteId);
+    }
+
+    /**
+     * Метод возвращает идентификатор активного поколения сайта
+     *
+     * @param url адрес сайта
+     * @return Идентификатор сайта, либо null, если активного сайта с таким адресом нет
+     */
+    public Integer getActiveSiteId(String url) {
+        return activeSiteIds.get(url);
+    }
+
+    /**
+     * Метод удаляет словарь лемм сайта (например, предыдущего поколения сайта) и перестраивает общий словарь
+     *
+     * @param siteId идентификатор сайта
+     */
+    public synchronized void removeSite(int siteId) {
+        activeSiteIds.values().remove(siteId);
+        if (siteDictionaries.remove(siteId) != null) {
+            rebuildGlobalDictionary();
+        }
+    }
+
+    /**
+     * Метод возвращает словарь лемм сайта, либо всех сайтов
+     *
+     * @param siteId идентификатор сайта, либо null для словаря всех сайтов
+     * @return Словарь {@link LemmaDictionary}
+     */
+    public LemmaDictionary getDictionary(Integer siteId) {
+        return siteId == null ? globalDictionary : siteDictionaries.getOrDefault(siteId, LemmaDictionary.EMPTY);
+    }
+
+    private LemmaDictionary loadSiteDictionary(int siteId) {
+        List<LemmaFrequencyProjection> lemmas = lemmaRepository.findFrequenciesBySiteId(siteId);
+        return LemmaDictionary.of(lemmas.stream().map(LemmaFrequencyProjection::getLemma).toList(),
+                lemmas.stream().map(LemmaFrequencyProjection::getFrequency).toList());
+    }
+
+    private void rebuildGlobalDictionary() {
+        globalDictionary = LemmaDictionary.merge(siteDictionaries.values());
+    }
+}
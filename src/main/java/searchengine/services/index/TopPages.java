@@ -0,0 +1,4 @@
+package searchengine.services.index;
+
+public record TopPages(int[] pageIds, double[] scores, int size, int totalCount) {
+}
@@ -0,0 +1,165 @@
+package searchengine.services.index;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+
+public class TopPagesCollector {
+    private static final int INITIAL_HEAP_SIZE = 64;
+
+    private final int capacity;
+    private final SearchCursor after;
+    private int[] pageIds;
+    private double[] scores;
+    private int size = 0;
+    @Getter
+    private int totalCount = 0;
+
+    public TopPagesCollector(int capacity) {
+        this(capacity, null);
+    }
+
+    /**
+     * Конструктор коллектора, отбирающего только страницы, следующие в результатах поиска после позиции курсора
+     * (все найденные страницы при этом учитываются в общем количестве)
+     *
+     * @param capacity количество отбираемых страниц
+     * @param after    курсор {@link SearchCursor}, либо null, если отбираются лучшие страницы
+     */
+    public TopPagesCollector(int capacity, SearchCursor after) {
+        this.capacity = Math.max(capacity, 0);
+        this.after = after;
+        pageIds = new int[Math.min(this.capacity, INITIAL_HEAP_SIZE)];
+        scores = new double[pageIds.length];
+    }
+
+    /**
+     * Метод учитывает очередную найденную страницу. В куче (в корне которой находится худшая из отобранных страниц)
+     * хранятся только capacity лучших страниц, но общее количество найденных страниц подсчитывается точно
+     *
+     * @param pageId идентификатор страницы
+     * @param score  релевантность страницы
+     */
+    public void collect(int pageId, double score) {
+        totalCount++;
+        offer(pageId, score);
+    }
+
+    /**
+     * Метод объединяет с текущими отобранными страницами лучшие страницы, отобранные другим коллектором
+     * (например, по другому сайту)
+     *
+     * @param topPages лучшие страницы {@link TopPages}, отобранные другим коллектором
+     */
+    public void merge(TopPages topPages) {
+        for (int i = 0; i < topPages.size(); i++) {
+            offer(topPages.pageIds()[i], topPages.scores()[i]);
+        }
+        totalCount += topPages.totalCount();
+    }
+
+    private void offer(int pageId, double score) {
+        if (after != null && !after.precedes(pageId, score)) {
+            return;
+        }
+        if (size < capacity) {
+            if (size == pageIds.length) {
+                pageIds = Arrays.copyOf(pageIds, (int) Math.min(capacity, 2L * size));
+                scores = Arrays.copyOf(scores, pageIds.length);
+            }
+            pageIds[size] = pageId;
+            scores[size] = score;
+            siftUp(size++);
+            return;
+        }
+        if (capacity > 0 && isBetter(pageId, score, 0)) {
+            pageIds[0] = pageId;
+            scores[0] = score;
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Метод возвращает минимальную релевантность, которую должна иметь страница, чтобы попасть в число лучших
+     *
+     * @return Релевантность худшей из отобранных страниц, либо отрицательная бесконечность, если куча не заполнена
+     */
+    public double threshold() {
+        return size < capacity || capacity == 0 ? Double.NEGATIVE_INFINITY : scores[0];
+    }
+
+    /**
+     * Метод формирует итоговый список отобранных страниц в порядке убывания релевантности (при равной релевантности -
+     * в порядке возрастания идентификаторов страниц)
+     *
+     * @return Объект {@link TopPages}
+     */
+    public TopPages toTopPages() {
+        int[] sortedPageIds = new int[size];
+        double[] sortedScores = new double[size];
+        int[] heapPageIds = pageIds.clone();
+        double[] heapScores = scores.clone();
+        int heapSize = size;
+        for (int i = size - 1; i >= 0; i--) {
+            sortedPageIds[i] = heapPageIds[0];
+            sortedScores[i] = heapScores[0];
+            heapSize--;
+            heapPageIds[0] = heapPageIds[heapSize];
+            heapScores[0] = heapScores[heapSize];
+            siftDown(heapPageIds, heapScores, heapSize, 0);
+        }
+        return new TopPages(sortedPageIds, sortedScores, size, totalCount);
+    }
+
+    private boolean isBetter(int pageId, double score, int position) {
+        return isBetter(pageId, score, pageIds[position], scores[position]);
+    }
+
+    private static boolean isBetter(int pageId, double score, int otherPageId, double otherScore) {
+        int cmp = Double.compare(score, otherScore);
+        return cmp > 0 || (cmp == 0 && pageId < otherPageId);
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (!isBetter(pageIds[parent], scores[parent], pageIds[position], scores[position])) {
+                return;
+            }
+            swap(pageIds, scores, parent, position);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position) {
+        siftDown(pageIds, scores, size, position);
+    }
+
+    private static void siftDown(int[] pageIds, double[] scores, int size, int position) {
+        while (true) {
+            int worst = position;
+            int left = 2 * position + 1;
+            int right = left + 1;
+            if (left < size && isBetter(pageIds[worst], scores[worst], pageIds[left], scores[left])) {
+                worst = left;
+            }
+            if (right < size && isBetter(pageIds[worst], scores[worst], pageIds[right], scores[right])) {
+                worst = right;
+            }
+            if (worst == position) {
+                return;
+            }
+            swap(pageIds, scores, worst, position);
+            position = worst;
+        }
+    }
+
+    private static void swap(int[] pageIds, double[] scores, int i, int j) {
+        int pageId = pageIds[i];
+        pageIds[i] = pageIds[j];
+        pageIds[j] = pageId;
+        double score = scores[i];
+        scores[i] = scores[j];
+        scores[j] = score;
+    }
+}
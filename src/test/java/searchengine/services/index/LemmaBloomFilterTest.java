@@ -0,0 +1,64 @@
+package searchengine.services.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LemmaBloomFilterTest {
+
+    @Test
+    void emptyFilterContainsNothing() {
+        LemmaBloomFilter filter = LemmaBloomFilter.of(List.of());
+        assertFalse(filter.mightContain("лемма"));
+        assertFalse(filter.mightContain(""));
+    }
+
+    @Test
+    void containsEveryAddedLemma() {
+        List<String> lemmas = lemmas("слово", 20000);
+        LemmaBloomFilter filter = LemmaBloomFilter.of(lemmas);
+        lemmas.forEach(lemma -> assertTrue(filter.mightContain(lemma), lemma));
+    }
+
+    @Test
+    void falsePositiveRateStaysLow() {
+        LemmaBloomFilter filter = LemmaBloomFilter.of(lemmas("слово", 20000));
+        assertTrue(falsePositiveRate(filter) < 0.03d);
+    }
+
+    @Test
+    void filterGrowsPastExpectedCount() {
+        // Фильтр построен для 1000 лемм, а на сайт после построения добавлено в 100 раз больше
+        List<String> lemmas = lemmas("слово", 1000);
+        LemmaBloomFilter filter = LemmaBloomFilter.of(lemmas);
+        List<String> addedLemmas = lemmas("добавлено", 100000);
+        addedLemmas.forEach(filter::add);
+
+        lemmas.forEach(lemma -> assertTrue(filter.mightContain(lemma), lemma));
+        addedLemmas.forEach(lemma -> assertTrue(filter.mightContain(lemma), lemma));
+        assertTrue(falsePositiveRate(filter) < 0.03d);
+    }
+
+    private static List<String> lemmas(String prefix, int count) {
+        List<String> lemmas = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            lemmas.add(prefix + i);
+        }
+        return lemmas;
+    }
+
+    private static double falsePositiveRate(LemmaBloomFilter filter) {
+        int probes = 100000;
+        int falsePositives = 0;
+        for (int i = 0; i < probes; i++) {
+            if (filter.mightContain("отсутствует" + i)) {
+                falsePositives++;
+            }
+        }
+        return (double) falsePositives / probes;
+    }
+}
@@ -0,0 +1,146 @@
+package searchengine.services.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LemmaDictionaryTest {
+    private static final String ALPHABET = "абвгде";
+
+    @Test
+    void ofSortsLemmasAndSumsFrequenciesOfDuplicates() {
+        LemmaDictionary dictionary = LemmaDictionary.of(List.of("кот", "дом", "кот", "сад"), List.of(2, 5, 3, 1));
+
+        assertEquals(3, dictionary.size());
+        assertEquals("дом", dictionary.lemma(0));
+        assertEquals("кот", dictionary.lemma(1));
+        assertEquals(5, dictionary.frequency(1));
+        assertTrue(dictionary.contains("сад"));
+        assertFalse(dictionary.contains("ко"));
+    }
+
+    @Test
+    void findClosestMatchesBruteForce() {
+        Random random = new Random(5);
+        LemmaDictionary dictionary = randomDictionary(2000, random);
+        for (int i = 0; i < 300; i++) {
+            String word = randomWord(random);
+            for (int maxEdits = 0; maxEdits <= 2; maxEdits++) {
+                int expected = bruteForceWithin(dictionary, word, maxEdits).stream().findFirst().orElse(-1);
+                int actual = dictionary.findClosest(word, maxEdits);
+                // Среди равноудаленных лемм с равной частотой может быть выбрана любая
+                if (expected < 0 || actual < 0) {
+                    assertEquals(expected, actual, word);
+                } else {
+                    assertEquals(distance(word, dictionary.lemma(expected)), distance(word, dictionary.lemma(actual)),
+                            word);
+                    assertEquals(dictionary.frequency(expected), dictionary.frequency(actual), word);
+                }
+            }
+        }
+    }
+
+    @Test
+    void findWithinMatchesBruteForce() {
+        Random random = new Random(9);
+        LemmaDictionary dictionary = randomDictionary(2000, random);
+        for (int i = 0; i < 300; i++) {
+            String word = randomWord(random);
+            for (int maxEdits = 0; maxEdits <= 2; maxEdits++) {
+                List<Integer> expected = bruteForceWithin(dictionary, word, maxEdits);
+                assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(),
+                        dictionary.findWithin(word, maxEdits, Integer.MAX_VALUE), word);
+                assertArrayEquals(expected.stream().limit(3).mapToInt(Integer::intValue).toArray(),
+                        dictionary.findWithin(word, maxEdits, 3), word);
+            }
+        }
+    }
+
+    @Test
+    void findWithinFindsLemmasWithTypos() {
+        LemmaDictionary dictionary = LemmaDictionary.of(List.of("молоко", "молот", "колокол", "окно"),
+                List.of(10, 3, 7, 1));
+
+        // Леммы словаря: колокол (0), молоко (1), молот (2), окно (3)
+        assertArrayEquals(new int[]{0}, dictionary.findWithin("колокл", 1, 5));
+        assertArrayEquals(new int[]{1, 2}, dictionary.findWithin("молок", 1, 5));
+        assertArrayEquals(new int[]{2, 1}, dictionary.findWithin("молот", 2, 5));
+        assertEquals("молоко", dictionary.lemma(dictionary.findClosest("малоко", 2)));
+        assertEquals(-1, dictionary.findClosest("стол", 1));
+        assertEquals(0, dictionary.findWithin("молоко", -1, 5).length);
+        assertEquals(0, LemmaDictionary.EMPTY.findWithin("молоко", 2, 5).length);
+    }
+
+    @Test
+    void findTopByPrefixMatchesBruteForce() {
+        Random random = new Random(13);
+        LemmaDictionary dictionary = randomDictionary(3000, random);
+        for (String prefix : List.of("", "а", "бв", "где", "ееее", "ж")) {
+            for (int limit : new int[]{1, 5, 50, 10000}) {
+                int[] expected = IntStream.range(0, dictionary.size()).boxed()
+                        .filter(index -> dictionary.lemma(index).startsWith(prefix))
+                        .sorted(Comparator.<Integer>comparingInt(dictionary::frequency).reversed()
+                                .thenComparingInt(Integer::intValue))
+                        .limit(limit)
+                        .mapToInt(Integer::intValue)
+                        .toArray();
+                assertArrayEquals(expected, dictionary.findTopByPrefix(prefix, limit), prefix + " " + limit);
+            }
+        }
+    }
+
+    private static LemmaDictionary randomDictionary(int count, Random random) {
+        List<String> lemmas = new ArrayList<>();
+        List<Integer> frequencies = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            lemmas.add(randomWord(random));
+            frequencies.add(1 + random.nextInt(100));
+        }
+        return LemmaDictionary.of(lemmas, frequencies);
+    }
+
+    private static String randomWord(Random random) {
+        StringBuilder word = new StringBuilder();
+        int length = 1 + random.nextInt(7);
+        for (int i = 0; i < length; i++) {
+            word.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return word.toString();
+    }
+
+    /**
+     * Индексы лемм, отстоящих от слова не более чем на maxEdits правок, в порядке возрастания расстояния, убывания
+     * частоты и возрастания индекса
+     */
+    private static List<Integer> bruteForceWithin(LemmaDictionary dictionary, String word, int maxEdits) {
+        return IntStream.range(0, dictionary.size()).boxed()
+                .filter(index -> distance(word, dictionary.lemma(index)) <= maxEdits)
+                .sorted(Comparator.<Integer>comparingInt(index -> distance(word, dictionary.lemma(index)))
+                        .thenComparing(dictionary::frequency, Comparator.reverseOrder())
+                        .thenComparingInt(Integer::intValue))
+                .toList();
+    }
+
+    private static int distance(String a, String b) {
+        int[] row = IntStream.rangeClosed(0, b.length()).toArray();
+        for (int i = 1; i <= a.length(); i++) {
+            int[] nextRow = new int[row.length];
+            nextRow[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                nextRow[j] = Math.min(Math.min(row[j], nextRow[j - 1]) + 1,
+                        row[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1));
+            }
+            row = nextRow;
+        }
+        return row[b.length()];
+    }
+}
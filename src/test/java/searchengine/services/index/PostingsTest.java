@@ -0,0 +1,51 @@
+package searchengine.services.index;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PostingsTest {
+
+    @Test
+    void advanceFindsFirstPositionWithPageIdNotLessThanGiven() {
+        Postings postings = evenPageIds(1000);
+        for (int from = 0; from <= postings.size(); from += 37) {
+            for (int pageId = -1; pageId <= 2002; pageId++) {
+                assertEquals(linearAdvance(postings, from, pageId), postings.advance(from, pageId),
+                        "from=" + from + ", pageId=" + pageId);
+            }
+        }
+    }
+
+    @Test
+    void advanceReturnsSizeWhenAllPageIdsAreLess() {
+        Postings postings = evenPageIds(100);
+        assertEquals(postings.size(), postings.advance(0, 1000));
+        assertEquals(postings.size(), postings.advance(99, 199));
+        assertEquals(postings.size(), postings.advance(postings.size(), 0));
+    }
+
+    @Test
+    void advanceIgnoresArrayTailBeyondSize() {
+        // Массивы списка могут быть длиннее его размера (запас под добавляемые страницы)
+        Postings postings = new Postings(new int[]{1, 3, 5, 0, 0}, new char[5], 3, 0, 0);
+        assertEquals(2, postings.advance(0, 4));
+        assertEquals(3, postings.advance(0, 6));
+    }
+
+    private static Postings evenPageIds(int size) {
+        int[] pageIds = new int[size];
+        for (int i = 0; i < size; i++) {
+            pageIds[i] = 2 * i;
+        }
+        return new Postings(pageIds, new char[size], size, 0, 0);
+    }
+
+    private static int linearAdvance(Postings postings, int from, int pageId) {
+        int position = from;
+        while (position < postings.size() && postings.pageId(position) < pageId) {
+            position++;
+        }
+        return position;
+    }
+}
@@ -0,0 +1,55 @@
+package searchengine.services.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SearchCursorTest {
+
+    @Test
+    void decodeRestoresEncodedCursor() {
+        for (SearchCursor cursor : new SearchCursor[]{
+                new SearchCursor(12345, 7L, 20, 3.141592653589793d, 42),
+                new SearchCursor(-1, Long.MAX_VALUE, 1, 0.1d + 0.2d, Integer.MAX_VALUE),
+                new SearchCursor(0, 0L, 1, -2.5d, 0)}) {
+            assertEquals(cursor, SearchCursor.decode(cursor.encode()));
+        }
+    }
+
+    @Test
+    void encodedCursorIsUrlSafe() {
+        String encoded = new SearchCursor(Integer.MIN_VALUE, Long.MIN_VALUE, 999, Double.MAX_VALUE, 1).encode();
+        assertTrue(encoded.matches("[A-Za-z0-9_-]+"), encoded);
+    }
+
+    @Test
+    void decodeReturnsNullForInvalidCursor() {
+        assertNull(SearchCursor.decode(""));
+        assertNull(SearchCursor.decode("not a cursor!"));
+        assertNull(SearchCursor.decode(encode("1:2:3:4")));
+        assertNull(SearchCursor.decode(encode("1:2:3:4:5:6")));
+        assertNull(SearchCursor.decode(encode("a:2:3:4:5")));
+        assertNull(SearchCursor.decode(encode("1:2:3:xyz:5")));
+        assertNull(SearchCursor.decode(encode("1:2:0:4:5")));
+    }
+
+    @Test
+    void precedesComparesByScoreThenPageId() {
+        SearchCursor cursor = new SearchCursor(0, 0L, 10, 2d, 5);
+        assertTrue(cursor.precedes(1, 1d));
+        assertTrue(cursor.precedes(6, 2d));
+        assertFalse(cursor.precedes(5, 2d));
+        assertFalse(cursor.precedes(4, 2d));
+        assertFalse(cursor.precedes(100, 3d));
+    }
+
+    private static String encode(String value) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,103 @@
+package searchengine.services.index;
+
+import org.junit.jupiter.api.Test;
+import searchengine.config.SearchSettings;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SearchIndexTest {
+    private static final int SITE_ID = 1;
+
+    @Test
+    void findPagesIntersectsPostingsOfAllLemmas() {
+        Random random = new Random(42);
+        SearchIndex index = newIndex();
+        Map<Integer, Set<Integer>> lemmaPages = new HashMap<>();
+        for (int pageId = 1; pageId <= 2000; pageId++) {
+            Map<Integer, Float> lemmaRanks = new HashMap<>();
+            // Леммы с разной частотой: лемма 1 есть почти на всех страницах, лемма 4 - на каждой двадцатой
+            for (int lemmaId = 1; lemmaId <= 4; lemmaId++) {
+                if (random.nextInt(lemmaId == 4 ? 20 : lemmaId + 1) == 0 || (lemmaId == 1 && pageId % 7 != 0)) {
+                    lemmaRanks.put(lemmaId, 1f + random.nextInt(3));
+                    lemmaPages.computeIfAbsent(lemmaId, id -> new TreeSet<>()).add(pageId);
+                }
+            }
+            index.addPage(SITE_ID, pageId, 100, lemmaRanks);
+        }
+
+        for (List<Integer> lemmaIds : List.of(List.of(1), List.of(1, 2), List.of(2, 3), List.of(1, 2, 3, 4))) {
+            Set<Integer> expected = new TreeSet<>(lemmaPages.get(lemmaIds.get(0)));
+            lemmaIds.forEach(lemmaId -> expected.retainAll(lemmaPages.get(lemmaId)));
+            assertEquals(new ArrayList<>(expected), findPages(index, lemmaIds, Collections.emptyMap()),
+                    "lemmas " + lemmaIds);
+        }
+    }
+
+    @Test
+    void findPagesFindsNothingForUnknownLemma() {
+        SearchIndex index = newIndex();
+        index.addPage(SITE_ID, 1, 10, Map.of(1, 1f));
+        assertTrue(findPages(index, List.of(1, 2), Collections.emptyMap()).isEmpty());
+    }
+
+    @Test
+    void findPagesMatchesAnyAlternativeOfLemma() {
+        SearchIndex index = newIndex();
+        // Лемма 1: страницы 1, 2, 3; ее альтернатива 2: страницы 3, 4; лемма 3: страницы 2, 3, 4, 5
+        index.addPage(SITE_ID, 1, 10, Map.of(1, 1f));
+        index.addPage(SITE_ID, 2, 10, Map.of(1, 2f, 3, 1f));
+        index.addPage(SITE_ID, 3, 10, Map.of(1, 1f, 2, 3f, 3, 1f));
+        index.addPage(SITE_ID, 4, 10, Map.of(2, 1f, 3, 1f));
+        index.addPage(SITE_ID, 5, 10, Map.of(3, 1f));
+
+        assertEquals(List.of(2, 3), findPages(index, List.of(1, 3), Collections.emptyMap()));
+        assertEquals(List.of(2, 3, 4), findPages(index, List.of(1, 3), Map.of(1, List.of(2))));
+    }
+
+    @Test
+    void unionMergesPageIdsAndSumsRanks() {
+        Postings union = SearchIndex.union(List.of(
+                new Postings(new int[]{1, 3, 5}, new char[]{1, 2, 3}, 3, 3, 4),
+                new Postings(new int[]{2, 3, 6, 0}, new char[]{5, 1, 1, 0}, 3, 5, 2),
+                new Postings(new int[]{3}, new char[]{9}, 1, 9, 7)));
+
+        assertArrayEquals(new int[]{1, 2, 3, 5, 6}, Arrays.copyOf(union.pageIds(), union.size()));
+        assertEquals(12, union.rank(2));
+        assertEquals(12, union.maxRank());
+        assertEquals(2, union.minDocLength());
+    }
+
+    @Test
+    void activateSiteIncrementsGenerations() {
+        SearchIndex index = newIndex();
+        long siteGeneration = index.getGeneration(SITE_ID);
+        long generation = index.getGeneration(null);
+        index.activateSite(SITE_ID);
+        assertTrue(index.getGeneration(SITE_ID) > siteGeneration);
+        assertTrue(index.getGeneration(null) > generation);
+    }
+
+    private static SearchIndex newIndex() {
+        return new SearchIndex(null, null, null, new SearchSettings());
+    }
+
+    private static List<Integer> findPages(SearchIndex index, List<Integer> lemmaIds,
+                                           Map<Integer, List<Integer>> alternativeLemmaIds) {
+        List<Integer> pageIds = new ArrayList<>();
+        index.findPages(lemmaIds, alternativeLemmaIds, Collections.emptyList(), () -> Double.NEGATIVE_INFINITY,
+                (pageId, score) -> pageIds.add(pageId));
+        return pageIds;
+    }
+}
@@ -0,0 +1,125 @@
+package searchengine.services.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TopPagesCollectorTest {
+    private static final Comparator<double[]> BEST_FIRST = Comparator.<double[]>comparingDouble(page -> -page[1])
+            .thenComparingDouble(page -> page[0]);
+
+    @Test
+    void keepsBestPagesInDescendingScoreOrder() {
+        List<double[]> pages = randomPages(500, new Random(7));
+        TopPagesCollector collector = new TopPagesCollector(100);
+        pages.forEach(page -> collector.collect((int) page[0], page[1]));
+
+        assertTopPages(sorted(pages).subList(0, 100), pages.size(), collector.toTopPages());
+    }
+
+    @Test
+    void returnsAllPagesWhenFewerThanCapacity() {
+        TopPagesCollector collector = new TopPagesCollector(10);
+        collector.collect(3, 1d);
+        collector.collect(2, 2d);
+        collector.collect(1, 1d);
+
+        TopPages topPages = collector.toTopPages();
+        assertEquals(3, topPages.size());
+        assertEquals(3, topPages.totalCount());
+        assertEquals(2, topPages.pageIds()[0]);
+        assertEquals(1, topPages.pageIds()[1]);
+        assertEquals(3, topPages.pageIds()[2]);
+    }
+
+    @Test
+    void thresholdIsWorstScoreOfFullHeap() {
+        TopPagesCollector collector = new TopPagesCollector(2);
+        assertEquals(Double.NEGATIVE_INFINITY, collector.threshold());
+        collector.collect(1, 5d);
+        assertEquals(Double.NEGATIVE_INFINITY, collector.threshold());
+        collector.collect(2, 3d);
+        assertEquals(3d, collector.threshold());
+        collector.collect(3, 4d);
+        assertEquals(4d, collector.threshold());
+        collector.collect(4, 1d);
+        assertEquals(4d, collector.threshold());
+    }
+
+    @Test
+    void zeroCapacityOnlyCountsPages() {
+        TopPagesCollector collector = new TopPagesCollector(0);
+        collector.collect(1, 1d);
+        collector.collect(2, 2d);
+
+        TopPages topPages = collector.toTopPages();
+        assertEquals(0, topPages.size());
+        assertEquals(2, topPages.totalCount());
+        assertEquals(Double.NEGATIVE_INFINITY, collector.threshold());
+    }
+
+    @Test
+    void mergeCombinesPagesOfSeveralCollectors() {
+        Random random = new Random(11);
+        List<double[]> pages = randomPages(300, random);
+        TopPagesCollector merged = new TopPagesCollector(50);
+        for (int part = 0; part < 3; part++) {
+            TopPagesCollector collector = new TopPagesCollector(50);
+            pages.subList(part * 100, (part + 1) * 100).forEach(page -> collector.collect((int) page[0], page[1]));
+            merged.merge(collector.toTopPages());
+        }
+
+        assertTopPages(sorted(pages).subList(0, 50), pages.size(), merged.toTopPages());
+    }
+
+    @Test
+    void cursorPagingReturnsEveryPageOnce() {
+        List<double[]> pages = randomPages(230, new Random(3));
+        List<double[]> expected = sorted(pages);
+        SearchCursor after = null;
+        int position = 0;
+        while (position < expected.size()) {
+            TopPagesCollector collector = new TopPagesCollector(20, after);
+            pages.forEach(page -> collector.collect((int) page[0], page[1]));
+            TopPages topPages = collector.toTopPages();
+            int size = Math.min(20, expected.size() - position);
+            assertTopPages(expected.subList(position, position + size), pages.size(), topPages);
+            position += size;
+            after = new SearchCursor(0, 0L, position, topPages.scores()[size - 1], topPages.pageIds()[size - 1]);
+        }
+    }
+
+    /**
+     * Страницы {идентификатор, релевантность} с повторяющимися значениями релевантности, чтобы проверялся
+     * порядок страниц с равной релевантностью
+     */
+    private static List<double[]> randomPages(int count, Random random) {
+        List<double[]> pages = new ArrayList<>();
+        for (int pageId = 1; pageId <= count; pageId++) {
+            pages.add(new double[]{pageId, random.nextInt(40) / 4d});
+        }
+        Collections.shuffle(pages, random);
+        return pages;
+    }
+
+    private static List<double[]> sorted(List<double[]> pages) {
+        List<double[]> sorted = new ArrayList<>(pages);
+        sorted.sort(BEST_FIRST);
+        return sorted;
+    }
+
+    private static void assertTopPages(List<double[]> expected, int totalCount, TopPages topPages) {
+        assertEquals(expected.size(), topPages.size());
+        assertEquals(totalCount, topPages.totalCount());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals((int) expected.get(i)[0], topPages.pageIds()[i], "position " + i);
+            assertEquals(expected.get(i)[1], topPages.scores()[i], "position " + i);
+        }
+    }
+}